@@ -0,0 +1,345 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks of the steps of building and showing a Fixture:
+ * - generate: the matrix (or the PairingOracle taking its place), built
+ *   as a new RoundRobinTemplate each time instead of the shared one
+ * - generateMinBreaks: the same with the circle pattern
+ * - matchdates: the packed matches of every matchdate, from the pattern of
+ *   a new template in one pass over the matrix (see RoundRobinTemplate)
+ * - matchdatesRescan: the same, the way it was done before, scanning the
+ *   whole matrix once per matchdate (the baseline of matchdates)
+ * - randomizeTeams / randomizeDates: the two shuffles
+ * - render: rendering the whole Fixture as text (toString())
+ * Every benchmark runs for single and double round and for odd and even
+ * amounts of teams: up to 100k for generate and the shuffles, up to 10001
+ * for matchdates, and up to 1001 by default for matchdatesRescan and render.
+ * The rescan reads the whole matrix once per matchdate, O(n^3): 10000 teams
+ * take about a thousand times as long as 1000, half an hour per operation,
+ * and a double round of 10000 teams has 100 million matches, rendering
+ * that is minutes, not a benchmark; use -p rescanTeams=... or
+ * -p renderTeams=... to go further. Matrices are materialized up to
+ * MATERIALIZE teams, above that the PairingOracle is used.
+ * It lives in the package Fixture to reach the constructor of
+ * RoundRobinTemplate.
+ *
+ * Usage (from the directory of pom.xml):
+ * mvn -Pjmh package
+ * java -jar target/benchmarks.jar -prof gc -rf json -rff fixture-bench.json
+ * -prof gc adds the allocation rate and the bytes allocated per operation
+ * (gc.alloc.rate.norm) to each result, and the JSON file can be compared
+ * with the one of another run to find regressions. A subset is chosen as
+ * usual, e.g. FixtureBenchmark.generate -p teams=1000,1001.
+ * @author Haiko
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixtureBenchmark {
+
+    /**
+     * Limit of teams for a materialized matrix (a matrix of 100k teams
+     * would take 20 GB).
+     */
+    static final int MATERIALIZE = 20000;
+
+    /**
+     * Teams of a benchmark that handles the matrix or the order only.
+     */
+    @State(Scope.Benchmark)
+    public static class Pool {
+
+        /**
+         * Amount of teams.
+         */
+        @Param({"4", "5", "100", "101", "1000", "1001", "10000", "10001", "100000", "100001"})
+        public int teams;
+        /**
+         * Two rounds or just one.
+         */
+        @Param({"false", "true"})
+        public boolean round;
+
+        /**
+         * Names of the teams.
+         */
+        String[] names;
+        /**
+         * Options of a Fixture that isn't shuffled when it's built.
+         */
+        FixtureOptions options;
+        /**
+         * Size of the matrix.
+         */
+        int size;
+        /**
+         * True if the matrix is materialized.
+         */
+        boolean materialize;
+
+        /**
+         * Builds the names and the options.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            names = names(teams);
+            materialize = teams <= MATERIALIZE;
+            options = new FixtureOptions("Free", round, false, false, false, materialize, true);
+            size = teams + (teams & 1);
+        }
+    }
+
+    /**
+     * A lazy Fixture that's shuffled again and again.
+     */
+    @State(Scope.Thread)
+    public static class Shuffled {
+
+        /**
+         * The Fixture.
+         */
+        Fixture fixture;
+
+        /**
+         * Builds the Fixture.
+         * @param pool
+         */
+        @Setup(Level.Trial)
+        public void setUp(Pool pool) {
+            fixture = new Fixture(pool.names, pool.options, 1);
+        }
+    }
+
+    /**
+     * A new template for each operation, so its matchdates aren't built
+     * yet.
+     */
+    @State(Scope.Thread)
+    public static class Season {
+
+        /**
+         * Amount of teams.
+         */
+        @Param({"4", "5", "100", "101", "1000", "1001", "10000", "10001"})
+        public int seasonTeams;
+        /**
+         * Two rounds or just one.
+         */
+        @Param({"false", "true"})
+        public boolean round;
+
+        /**
+         * The template.
+         */
+        RoundRobinTemplate template;
+
+        /**
+         * Builds the template (and its pattern), not measured.
+         */
+        @Setup(Level.Invocation)
+        public void setUp() {
+            template = new RoundRobinTemplate(seasonTeams + (seasonTeams & 1), false,
+                    seasonTeams <= MATERIALIZE, false);
+        }
+    }
+
+    /**
+     * The pattern of a template, for the baseline of matchdates.
+     */
+    @State(Scope.Benchmark)
+    public static class Rescan {
+
+        /**
+         * Amount of teams.
+         */
+        @Param({"4", "5", "100", "101", "1000", "1001"})
+        public int rescanTeams;
+        /**
+         * Two rounds or just one.
+         */
+        @Param({"false", "true"})
+        public boolean round;
+
+        /**
+         * The pattern.
+         */
+        ScheduleMatrix pattern;
+
+        /**
+         * Builds the pattern.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            pattern = new RoundRobinTemplate(rescanTeams + (rescanTeams & 1), false,
+                    rescanTeams <= MATERIALIZE, false).pattern();
+        }
+    }
+
+    /**
+     * A whole season, built beforehand.
+     */
+    @State(Scope.Benchmark)
+    public static class Rendered {
+
+        /**
+         * Amount of teams.
+         */
+        @Param({"4", "5", "100", "101", "1000", "1001"})
+        public int renderTeams;
+        /**
+         * Two rounds or just one.
+         */
+        @Param({"false", "true"})
+        public boolean round;
+
+        /**
+         * The Fixture, not lazy.
+         */
+        Fixture fixture;
+
+        /**
+         * Builds the Fixture.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            fixture = new Fixture(names(renderTeams), new FixtureOptions("Free", round, false,
+                    false, true, renderTeams <= MATERIALIZE, false), 1);
+        }
+    }
+
+    /**
+     * @param n amount of teams
+     * @return "Team 1" to "Team n"
+     */
+    static String[] names(int n) {
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = "Team " + (i+1);
+        }
+        return names;
+    }
+
+    /**
+     * A new template, not the shared one.
+     * @param pool
+     * @return the template
+     */
+    @Benchmark
+    public RoundRobinTemplate generate(Pool pool) {
+        return new RoundRobinTemplate(pool.size, false, pool.materialize, false);
+    }
+
+    /**
+     * A new template with the circle pattern.
+     * @param pool
+     * @return the template
+     */
+    @Benchmark
+    public RoundRobinTemplate generateMinBreaks(Pool pool) {
+        return new RoundRobinTemplate(pool.size, true, pool.materialize, false);
+    }
+
+    /**
+     * Shuffles the teams.
+     * @param shuffled
+     * @return the Fixture
+     */
+    @Benchmark
+    public Fixture randomizeTeams(Shuffled shuffled) {
+        shuffled.fixture.randomizeTeamsOrder();
+        return shuffled.fixture;
+    }
+
+    /**
+     * Shuffles the matchdates.
+     * @param shuffled
+     * @return the Fixture
+     */
+    @Benchmark
+    public Fixture randomizeDates(Shuffled shuffled) {
+        shuffled.fixture.randomizeMatchdatesOrder();
+        return shuffled.fixture;
+    }
+
+    /**
+     * The matches of every matchdate of a new template, in one pass over
+     * the matrix. A double round of 10000 teams holds 800 MB of matches.
+     * @param season
+     * @param hole
+     */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+    public void matchdates(Season season, Blackhole hole) {
+        season.template.buildLegs(season.round ? 2 : 1, false);
+        hole.consume(season.template);
+    }
+
+    /**
+     * The matches of every matchdate, scanning the whole matrix for each
+     * one (how the matchdates were built before the single pass).
+     * @param rescan
+     * @return the matches
+     */
+    @Benchmark
+    public long[] matchdatesRescan(Rescan rescan) {
+        ScheduleMatrix pattern = rescan.pattern;
+        int m = pattern.size();
+        int count = (rescan.round ? 2 : 1) * (m-1);
+        long[] x = new long[count * (m/2)];
+        int i = 0;
+        for (int k = 1; k <= count; k++) {
+            for (int f = 0; f < m; f++) {
+                for (int c = 0; c < m; c++) {
+                    if (pattern.get(f, c) == k) x[i++] = Match.pack(f, c);
+                }
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Renders the whole season.
+     * @param rendered
+     * @return the text
+     */
+    @Benchmark
+    public String render(Rendered rendered) {
+        return rendered.fixture.toString();
+    }
+}
@@ -0,0 +1,335 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a file written by BinaryFixtureWriter.
+ * Opening a file only reads the header; the matches of a matchdate or the
+ * schedule of a team are then read straight from the file, without parsing
+ * anything else (see FileWindows).
+ * A file that fits in the budget (see open(path, budget)) is memory-mapped
+ * whole. A bigger one is never mapped: it is read in small windows into a
+ * fixed set of buffers, so files far bigger than the heap, or than the
+ * address space given to them, can be read; the windows read last are
+ * kept, the others are read again when they're needed. A thread
+ * interrupted while it reads a window closes the file, as with any
+ * FileChannel.
+ * Team names are decoded the first time they're needed.
+ * @author Haiko
+ */
+public class BinaryFixtureReader implements Closeable {
+
+    /**
+     * The file.
+     */
+    private final FileChannel channel;
+    /**
+     * Amount of teams.
+     */
+    private final int teams;
+    /**
+     * Amount of matchdates.
+     */
+    private final int rounds;
+    /**
+     * Matches per matchdate.
+     */
+    private final int perRound;
+    /**
+     * Width of a team index, in bytes.
+     */
+    private final int width;
+    /**
+     * True if the tournament is two rounds.
+     */
+    private final boolean round;
+    /**
+     * Default most bytes held at a time.
+     */
+    public static final long DEFAULT_BUDGET = 256L << 20;
+
+    /**
+     * The windows of the file.
+     */
+    private final FileWindows file;
+    /**
+     * Offset of the dictionary.
+     */
+    private final long dictionary;
+    /**
+     * Offset of the matches.
+     */
+    private final long matches;
+    /**
+     * Offset of the opponents of each team.
+     */
+    private final long opponents;
+    /**
+     * Offset of the home bits of each team.
+     */
+    private final long homes;
+    /**
+     * Names already decoded.
+     */
+    private final String[] names;
+    /**
+     * Index of each name, built the first time a team is looked up by name.
+     */
+    private Map<String, Integer> index;
+
+    /**
+     * Constructor
+     * @param channel channel of the file, closed by close()
+     * @param budget most bytes held at a time
+     * @throws IOException if the file is not a fixture
+     */
+    private BinaryFixtureReader (FileChannel channel, long budget) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                Math.min(channel.size(), BinaryFixtureWriter.HEADER));
+        if (header.limit() < BinaryFixtureWriter.HEADER
+                || header.getInt(0) != BinaryFixtureWriter.MAGIC)
+            throw new IOException("Not a fixture file");
+        if (header.getShort(4) != BinaryFixtureWriter.VERSION)
+            throw new IOException("Unsupported version: " + header.getShort(4));
+        round = (header.getShort(6) & 1) != 0;
+        teams = header.getInt(8);
+        rounds = header.getInt(12);
+        perRound = header.getInt(16);
+        width = header.getInt(20);
+        long dictionaryOffset = header.getLong(24);
+        long matchesOffset = header.getLong(32);
+        long opponentsOffset = header.getLong(40);
+        long homesOffset = header.getLong(48);
+        long length = header.getLong(56);
+        if (channel.size() < length)
+            throw new IOException("Truncated fixture file");
+        file = new FileWindows(channel, budget);
+        dictionary = dictionaryOffset;
+        matches = matchesOffset;
+        opponents = opponentsOffset;
+        homes = homesOffset;
+        names = new String[teams];
+    }
+
+    /**
+     * Opens a file written by BinaryFixtureWriter, holding at most
+     * DEFAULT_BUDGET bytes at a time.
+     * @param path
+     * @return the reader
+     * @throws IOException
+     */
+    public static BinaryFixtureReader open (Path path) throws IOException {
+        return open(path, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Opens a file written by BinaryFixtureWriter.
+     * @param path
+     * @param budget most bytes held at a time; a file that fits is mapped
+     * whole, a bigger one is read in windows
+     * @return the reader
+     * @throws IOException
+     */
+    public static BinaryFixtureReader open (Path path, long budget) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new BinaryFixtureReader(channel, budget);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return amount of teams
+     */
+    public int getTeamCount () {
+        return teams;
+    }
+
+    /**
+     * @return amount of matchdates
+     */
+    public int getMatchdateCount () {
+        return rounds;
+    }
+
+    /**
+     * @return matches per matchdate (a free team counts as a match)
+     */
+    public int getMatchesPerMatchdate () {
+        return perRound;
+    }
+
+    /**
+     * @return true if the tournament is two rounds
+     */
+    public boolean isRound () {
+        return round;
+    }
+
+    /**
+     * Name of a team.
+     * @param team index of the team
+     * @return the name
+     */
+    public String team (int team) {
+        String name = names[team];
+        if (name == null) {
+            int start = file.getInt(dictionary + 4L * team);
+            int end = file.getInt(dictionary + 4L * (team + 1));
+            byte[] bytes = new byte[end - start];
+            file.get(dictionary + 4L * (teams + 1) + start, bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+            names[team] = name;
+        }
+        return name;
+    }
+
+    /**
+     * Index of a team.
+     * @param name name of the team
+     * @return the index, -1 if there's no such team
+     */
+    public int indexOf (String name) {
+        if (index == null) {
+            index = new HashMap<>(teams * 2);
+            for (int i = 0; i < teams; i++) index.put(team(i), i);
+        }
+        Integer i = index.get(name);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Home team of a match.
+     * @param k number of the matchdate, from 1
+     * @param i position of the match in the matchdate, from 0
+     * @return index of the team, -1 if none
+     */
+    public int home (int k, int i) {
+        return read(matches, ((long) (k-1) * perRound + i) * 2);
+    }
+
+    /**
+     * Away team of a match.
+     * @param k number of the matchdate, from 1
+     * @param i position of the match in the matchdate, from 0
+     * @return index of the team, -1 if the home team is free
+     */
+    public int away (int k, int i) {
+        return read(matches, ((long) (k-1) * perRound + i) * 2 + 1);
+    }
+
+    /**
+     * Opponent of a team on a matchdate.
+     * @param team index of the team
+     * @param k number of the matchdate, from 1
+     * @return index of the opponent, -1 if the team is free
+     */
+    public int opponent (int team, int k) {
+        return read(opponents, (long) team * rounds + (k-1));
+    }
+
+    /**
+     * Checks if a team plays at home on a matchdate.
+     * @param team index of the team
+     * @param k number of the matchdate, from 1
+     * @return true if it plays at home
+     */
+    public boolean isHome (int team, int k) {
+        long bytes = (rounds + 7) / 8;
+        return (file.get(homes + team * bytes + ((k-1) >>> 3)) & (1 << ((k-1) & 7))) != 0;
+    }
+
+    /**
+     * Matches of a matchdate.
+     * @param k number of the matchdate, from 1
+     * @return the Matchdate
+     */
+    public Matchdate matchdate (int k) {
+        if (k < 1 || k > rounds)
+            throw new IndexOutOfBoundsException("No such matchdate: " + k);
+        Matchdate date = new Matchdate(k, perRound);
+        int home, away;
+        for (int i = 0; i < perRound; i++) {
+            home = home(k, i);
+            away = away(k, i);
+            if (home < 0) continue;
+            date.addMatch(away < 0 ? new Match(team(home)) : new Match(team(home), team(away)));
+        }
+        return date;
+    }
+
+    /**
+     * Schedule of a team: its Match on each matchdate, in order (a Match
+     * with only the team if it's free).
+     * @param team index of the team
+     * @return one Match per matchdate
+     */
+    public List<Match> schedule (int team) {
+        List<Match> schedule = new ArrayList<>(rounds);
+        String name = team(team);
+        int opponent;
+        for (int k = 1; k <= rounds; k++) {
+            opponent = opponent(team, k);
+            if (opponent < 0) schedule.add(new Match(name));
+            else if (isHome(team, k)) schedule.add(new Match(name, team(opponent)));
+            else schedule.add(new Match(team(opponent), name));
+        }
+        return schedule;
+    }
+
+    /**
+     * Reads a team index.
+     * @param section offset of the section
+     * @param i position of the index in the section
+     * @return the index, -1 for FREE
+     */
+    private int read (long section, long i) {
+        if (width == 2) {
+            int x = file.getChar(section + i * 2);
+            return x == 0xFFFF ? -1 : x;
+        }
+        return file.getInt(section + i * 4);
+    }
+
+    /**
+     * Closes the file. A file mapped whole is unmapped by the garbage
+     * collector; the windows of a bigger file are never mapped.
+     * @throws IOException
+     */
+    @Override
+    public void close () throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,330 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes a Fixture in a compact binary format that BinaryFixtureReader can
+ * read without parsing the whole file.
+ * Every team is stored once in a dictionary, everything else refers to teams
+ * by their index in it. Layout (big-endian):
+ * - header (HEADER bytes): magic, version, flags (bit 0: two rounds),
+ *   amount of teams, matchdates and matches per matchdate, width of a team
+ *   index (2 or 4 bytes) and the offset of every section
+ * - dictionary: teams+1 int offsets, then the UTF-8 names one after another
+ * - matches: for each matchdate, matches per matchdate pairs of (home, away)
+ *   indexes; the away index of a free team is FREE
+ * - opponents: for each team, the index of its opponent on each matchdate
+ *   (FREE if it doesn't play)
+ * - homes: for each team, one bit per matchdate, set if it plays at home
+ * Because every matchdate and every team take the same amount of bytes,
+ * the matches of a matchdate or the schedule of a team are found by simple
+ * arithmetic.
+ * @author Haiko
+ */
+public class BinaryFixtureWriter {
+
+    /**
+     * First bytes of every file ("FIXT").
+     */
+    static final int MAGIC = 0x46495854;
+    /**
+     * Version of the format.
+     */
+    static final short VERSION = 1;
+    /**
+     * Size of the header in bytes.
+     */
+    static final int HEADER = 64;
+    /**
+     * Default size of the buffer, in bytes.
+     */
+    private static final int DEFAULT_BUFFER = 1 << 16;
+
+    /**
+     * Target of the bytes.
+     */
+    private final WritableByteChannel channel;
+    /**
+     * Reusable buffer of the bytes not yet written.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * Width of a team index in the file being written.
+     */
+    private int width;
+
+    /**
+     * Constructor
+     * @param channel target of the bytes
+     * @param bufferSize size of the buffer, in bytes
+     */
+    public BinaryFixtureWriter (WritableByteChannel channel, int bufferSize) {
+        if (bufferSize < HEADER)
+            throw new IllegalArgumentException("Buffer too small: " + bufferSize);
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Constructor with the default buffer size.
+     * @param channel target of the bytes
+     */
+    public BinaryFixtureWriter (WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER);
+    }
+
+    /**
+     * Writes a Fixture to a file, replacing it if it exists.
+     * @param fixture
+     * @param path
+     * @throws IOException
+     */
+    public static void write (Fixture fixture, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            new BinaryFixtureWriter(channel).write(fixture);
+        }
+    }
+
+    /**
+     * Out-of-core mode: writes a Fixture to a spill file one matchdate at a
+     * time, through a buffer of a fixed size, and opens it again through
+     * a bounded set of windows. Neither step keeps more than O(n) on the heap
+     * (plus the buffer), whatever the amount of matches, as long as the
+     * Fixture itself is lazy and not materialized: then each matchdate is
+     * built from the PairingOracle when it's written, and the whole season
+     * only exists in the file.
+     * The file is not deleted when the reader is closed.
+     * @param fixture a generated Fixture
+     * @param path the spill file, replaced if it exists
+     * @param bufferSize size of the write buffer, in bytes
+     * @param budget most bytes of the file held at a time when reading
+     * @return a reader of the file
+     * @throws IOException
+     */
+    public static BinaryFixtureReader spill (Fixture fixture, Path path, int bufferSize,
+            long budget) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            new BinaryFixtureWriter(channel, bufferSize).write(fixture);
+        }
+        return BinaryFixtureReader.open(path, budget);
+    }
+
+    /**
+     * Width (in bytes) of a team index for a given amount of teams.
+     * @param teams amount of teams
+     * @return 2 or 4
+     */
+    static int widthOf (int teams) {
+        return teams < 0xFFFF ? 2 : 4;
+    }
+
+    /**
+     * Writes a Fixture to the channel. The Fixture must have been generated.
+     * @param fixture
+     * @throws IOException
+     */
+    public void write (Fixture fixture) throws IOException {
+        TeamDictionary teams = fixture.getTeams();
+        ScheduleMatrix pattern = fixture.pattern();
+        int n = fixture.getTeamCount();
+        int rounds = fixture.getMatchdateCount();
+        int perRound = fixture.getMatchesPerMatchdate();
+        width = widthOf(n);
+        int homeBytes = (rounds + 7) / 8;
+
+        /* dictionary: the index of a team is its id, the free team is not a
+        team */
+        byte[][] names = new byte[n][];
+        long namesLength = 0;
+        for (int i = 0; i < n; i++) {
+            names[i] = teams.name(i).getBytes(StandardCharsets.UTF_8);
+            namesLength += names[i].length;
+        }
+        long dictionaryOffset = HEADER;
+        long matchesOffset = dictionaryOffset + 4L * (n + 1) + namesLength;
+        long opponentsOffset = matchesOffset + (long) rounds * perRound * 2 * width;
+        long homesOffset = opponentsOffset + (long) n * rounds * width;
+        long length = homesOffset + (long) n * homeBytes;
+
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) (fixture.isRound() ? 1 : 0));
+        buffer.putInt(n);
+        buffer.putInt(rounds);
+        buffer.putInt(perRound);
+        buffer.putInt(width);
+        buffer.putLong(dictionaryOffset);
+        buffer.putLong(matchesOffset);
+        buffer.putLong(opponentsOffset);
+        buffer.putLong(homesOffset);
+        buffer.putLong(length);
+
+        /* dictionary */
+        int offset = 0;
+        for (int i = 0; i <= n; i++) {
+            ensure(4);
+            buffer.putInt(offset);
+            if (i < n) offset += names[i].length;
+        }
+        for (byte[] name : names) {
+            for (int i = 0; i < name.length; ) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), name.length - i);
+                buffer.put(name, i, chunk);
+                i += chunk;
+            }
+        }
+
+        /* matches, in the same order the Fixture gives them */
+        long[] round = new long[perRound];
+        int home, away;
+        for (int k = 1; k <= rounds; k++) {
+            fixture.pairs(k, round);
+            for (long pair : round) {
+                home = fixture.teamAt(Match.home(pair), k);
+                away = fixture.teamAt(Match.away(pair), k);
+                if (home == TeamDictionary.FREE) {
+                    /* the free team is on the home side */
+                    home = away;
+                    away = TeamDictionary.FREE;
+                }
+                putIndex(home);
+                putIndex(away);
+            }
+        }
+
+        /* opponents and homes, read from the row and column of each team */
+        int[] opponents = new int[rounds];
+        byte[] homes = new byte[homeBytes];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int t = 0; t < n; t++) {
+                schedule(fixture, pattern, t, rounds, opponents, homes);
+                if (pass == 0) {
+                    for (int k = 0; k < rounds; k++) putIndex(opponents[k]);
+                } else {
+                    for (byte b : homes) {
+                        ensure(1);
+                        buffer.put(b);
+                    }
+                }
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Fills the schedule of a team: its opponent on each matchdate (FREE if
+     * it doesn't play) and a bit per matchdate it plays at home.
+     * The row and column of each slot the team is on are read, only the
+     * matchdates the team is on that slot count.
+     * @param fixture the Fixture
+     * @param pattern matrix of the Fixture
+     * @param team id of the team
+     * @param rounds amount of matchdates
+     * @param opponents id of the opponent by matchdate (filled)
+     * @param homes home bits (filled)
+     */
+    static void schedule (Fixture fixture, ScheduleMatrix pattern, int team, int rounds,
+            int[] opponents, byte[] homes) {
+        Arrays.fill(opponents, TeamDictionary.FREE);
+        Arrays.fill(homes, (byte) 0);
+        int m = pattern.size(), v, k;
+        for (int t : fixture.slotsOf(team)) {
+            for (int c = 0; c < m; c++) {
+                if (c == t) continue;
+                v = pattern.get(t, c);
+                if (v >= 1 && v <= rounds) {
+                    k = fixture.matchdateOf(v);
+                    put(fixture, t, c, k, team, !fixture.isFlipped(v), opponents, homes);
+                }
+                v = pattern.get(c, t);
+                if (v >= 1 && v <= rounds) {
+                    k = fixture.matchdateOf(v);
+                    put(fixture, t, c, k, team, fixture.isFlipped(v), opponents, homes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a match to the schedule of a team, if it's the team on that slot
+     * on that matchdate and the opponent isn't free.
+     * @param fixture
+     * @param t slot of the team
+     * @param c slot of the opponent
+     * @param k number of the matchdate
+     * @param team id of the team
+     * @param home true if slot t plays at home
+     * @param opponents
+     * @param homes
+     */
+    private static void put (Fixture fixture, int t, int c, int k, int team, boolean home,
+            int[] opponents, byte[] homes) {
+        if (fixture.teamAt(t, k) != team) return;
+        int id = fixture.teamAt(c, k);
+        if (id == TeamDictionary.FREE) return;
+        opponents[k-1] = id;
+        if (home) homes[(k-1) >>> 3] |= 1 << ((k-1) & 7);
+    }
+
+    /**
+     * Adds a team index to the buffer.
+     * @param i index, -1 for FREE
+     * @throws IOException
+     */
+    private void putIndex (int i) throws IOException {
+        ensure(width);
+        if (width == 2) buffer.putChar((char) i);
+        else buffer.putInt(i);
+    }
+
+    /**
+     * Makes room in the buffer.
+     * @param bytes bytes needed
+     * @throws IOException
+     */
+    private void ensure (int bytes) throws IOException {
+        if (buffer.remaining() < bytes) drain();
+    }
+
+    /**
+     * Writes the buffer to the channel and empties it.
+     * @throws IOException
+     */
+    private void drain () throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
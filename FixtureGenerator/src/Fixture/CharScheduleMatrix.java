@@ -0,0 +1,55 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+/**
+ * ScheduleMatrix backed by a flat char array (row after row).
+ * Uses half the memory of IntScheduleMatrix, but can only hold matchdate
+ * numbers up to 65535 (i.e. up to 32768 teams on a two round tournament).
+ * @author Haiko
+ */
+public class CharScheduleMatrix extends ScheduleMatrix {
+
+    /**
+     * Cells of the matrix, row after row.
+     */
+    private final char [] cells;
+
+    /**
+     * Constructor
+     * @param size amount of rows (and columns)
+     */
+    public CharScheduleMatrix (int size) {
+        super(size);
+        cells = new char [cells(size)];
+    }
+
+    @Override
+    public int get (int f, int c) {
+        return cells[f * size + c];
+    }
+
+    @Override
+    public void set (int f, int c, int value) {
+        if (value < 0 || value > Character.MAX_VALUE)
+            throw new IllegalArgumentException("Value out of range: " + value);
+        cells[f * size + c] = (char) value;
+    }
+}
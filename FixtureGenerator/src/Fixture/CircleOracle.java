@@ -0,0 +1,169 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+/**
+ * Read-only ScheduleMatrix holding a circle (Berger) pattern with the
+ * minimum amount of breaks (a team playing at home, or away, on two
+ * matchdates in a row).
+ * Slot m-1 stays in the middle of the circle, the other m-1 slots turn
+ * around it (m is the even amount of teams, k = m-1):
+ * - on round r (from 0) slot m-1 meets slot r, and slot r+i meets slot r-i
+ *   (mod k) for i from 1 to m/2-1
+ * - slot m-1 plays at home on odd rounds, slot r+i plays at home when i
+ *   is odd
+ * A single round then has m-2 breaks, the minimum possible, and none at
+ * all for the team on slot m-1 (the free team, if there's an odd number of
+ * teams). The cells hold the same kind of values as the matrix built by
+ * Fixture.generate(): round r+1 if the row plays at home, r+1+k if it
+ * plays at home on the second round.
+ * Every question is answered in constant time and without creating any
+ * object.
+ * @author Haiko
+ */
+public class CircleOracle extends ScheduleMatrix {
+
+    /**
+     * Amount of matchdates of one round (m-1), also the slot in the middle
+     * of the circle.
+     */
+    private final int k;
+
+    /**
+     * Constructor
+     * @param size amount of teams, must be even (the free team included)
+     */
+    public CircleOracle (int size) {
+        super(size);
+        if (size < 2 || size % 2 != 0)
+            throw new IllegalArgumentException("Amount of teams must be even: " + size);
+        k = size - 1;
+    }
+
+    /**
+     * Gets the value of a cell.
+     * @param f row
+     * @param c column
+     * @return matchdate number, ZERO on the main diagonal
+     */
+    @Override
+    public int get (int f, int c) {
+        if (f == c) return 0;
+        int r = round(f, c);
+        return isHome(f, r) ? r + 1 : r + 1 + k;
+    }
+
+    /**
+     * Not supported, the oracle is read-only.
+     * @param f
+     * @param c
+     * @param value
+     */
+    @Override
+    public void set (int f, int c, int value) {
+        throw new UnsupportedOperationException("CircleOracle is read-only");
+    }
+
+    /**
+     * The team that plays against a team on a matchdate.
+     * @param team team
+     * @param matchdate matchdate number between 1 and 2*(m-1)
+     * @return the opponent
+     */
+    @Override
+    public int opponentOf (int team, int matchdate) {
+        check(team);
+        if (matchdate < 1 || matchdate > 2*k)
+            throw new IllegalArgumentException("No such matchdate: " + matchdate);
+        int r = (matchdate - 1) % k;
+        if (team == k) return r;
+        if (team == r) return k;
+        return ((2*r - team) % k + k) % k;
+    }
+
+    /**
+     * Fills a matrix with this pattern, one round after the other, so each
+     * pair of cells is written once and no cell needs to be computed.
+     * @param matrix matrix of the same size (the diagonal must be ZERO)
+     * @param r round, from 0
+     */
+    void fill (ScheduleMatrix matrix, int r) {
+        int half = size / 2, a, b;
+        put(matrix, k, r, r);
+        for (int i = 1; i < half; i++) {
+            a = r + i >= k ? r + i - k : r + i;
+            b = r - i < 0 ? r - i + k : r - i;
+            if (i % 2 == 1) put(matrix, a, b, r);
+            else put(matrix, b, a, r);
+        }
+    }
+
+    /**
+     * Writes a match in a matrix.
+     * @param matrix
+     * @param f team that plays at home (on the first round)
+     * @param c team that plays away
+     * @param r round, from 0
+     */
+    private void put (ScheduleMatrix matrix, int f, int c, int r) {
+        if (f == k && r % 2 == 0) {
+            /* the middle slot only plays at home on odd rounds */
+            int x = f; f = c; c = x;
+        }
+        matrix.set(f, c, r + 1);
+        matrix.set(c, f, r + 1 + k);
+    }
+
+    /**
+     * Round (from 0) on which two teams meet on the first round.
+     * @param f team
+     * @param c another team
+     * @return the round
+     */
+    private int round (int f, int c) {
+        if (f == k) return c;
+        if (c == k) return f;
+        /* f + c = 2r (mod k), (m/2) is the inverse of 2 since k is odd */
+        return (int) ((long) (f + c) * (size / 2) % k);
+    }
+
+    /**
+     * Checks if a team plays at home on a round of the first round.
+     * @param team team
+     * @param r round, from 0
+     * @return true if it plays at home
+     */
+    private boolean isHome (int team, int r) {
+        if (team == k) return r % 2 == 1;
+        if (team == r) return r % 2 == 0;
+        int i = ((team - r) % k + k) % k;
+        /* team is r+i if i <= k/2, otherwise it's r-(k-i) */
+        return i <= k / 2 ? i % 2 == 1 : (k - i) % 2 == 0;
+    }
+
+    /**
+     * Checks that a team exists.
+     * @param team
+     */
+    private void check (int team) {
+        if (team < 0 || team >= size)
+            throw new IllegalArgumentException("No such team: " + team);
+    }
+}
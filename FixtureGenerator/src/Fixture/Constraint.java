@@ -0,0 +1,92 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+/**
+ * A rule a Fixture should follow, e.g. a team that can't play on a given
+ * matchdate. Constraints are declared with the static methods of this
+ * interface and handed to a ConstraintEngine, which repairs the Fixture
+ * until none is violated.
+ * Teams are given by id, see TeamDictionary.idOf().
+ * @author Haiko
+ */
+public interface Constraint {
+
+    /**
+     * Teams the constraint depends on. violations() must only depend on
+     * the opponents and home matches of these teams.
+     * @return ids of the teams
+     */
+    int[] teams();
+
+    /**
+     * Amount of times the constraint is violated on a matchdate.
+     * @param schedule the schedule checked
+     * @param k number of the matchdate, from 1
+     * @return 0 if the constraint holds on that matchdate
+     */
+    int violations(ScheduleView schedule, int k);
+
+    /**
+     * A team that can't play at all on a matchdate (it must be the free
+     * team, so it can only hold if there's an odd number of teams).
+     * @param team id of the team
+     * @param k number of the matchdate
+     * @return the constraint
+     */
+    static Constraint unavailable(int team, int k) {
+        return new Constraints.Unavailable(team, k, false);
+    }
+
+    /**
+     * A team whose venue can't be used on a matchdate: it may play, but
+     * not at home.
+     * @param team id of the team
+     * @param k number of the matchdate
+     * @return the constraint
+     */
+    static Constraint venueUnavailable(int team, int k) {
+        return new Constraints.Unavailable(team, k, true);
+    }
+
+    /**
+     * Two teams sharing a venue: they never play at home on the same
+     * matchdate.
+     * @param a id of a team
+     * @param b id of the other team
+     * @return the constraint
+     */
+    static Constraint sharedVenue(int a, int b) {
+        return new Constraints.SharedVenue(a, b);
+    }
+
+    /**
+     * Two derbies that must not clash: a against b and c against d are
+     * never played on the same matchdate.
+     * @param a id of a team of the first derby
+     * @param b id of the other team of the first derby
+     * @param c id of a team of the second derby
+     * @param d id of the other team of the second derby
+     * @return the constraint
+     */
+    static Constraint noClash(int a, int b, int c, int d) {
+        return new Constraints.NoClash(a, b, c, d);
+    }
+}
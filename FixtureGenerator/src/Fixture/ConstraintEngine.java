@@ -0,0 +1,431 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.random.RandomGenerator;
+
+/**
+ * Repairs a generated Fixture so it follows a set of Constraints, without
+ * generating it again. The pattern of the Fixture is never changed, only
+ * how it's shown, through three kinds of local moves:
+ * - swapping the rounds shown on two matchdates
+ * - switching the home and away teams of a round (both legs in a two
+ *   rounds tournament, so every team still hosts each opponent once)
+ * - swapping the teams on two slots of the matrix (relabeling)
+ * Every move keeps the Fixture valid (each pair of teams still meets the
+ * same amount of times, nobody plays twice on a matchdate), so the repair
+ * can stop at any time: repair() runs until no constraint is violated or
+ * the time given runs out.
+ * A move is only checked against the constraints it can change: swapping
+ * or flipping rounds only touches two matchdates, relabeling only the
+ * constraints of the two teams involved. Moves that don't make things
+ * worse are kept, a few that do are kept as well so the search doesn't get
+ * stuck; at the end the Fixture is left as it was when it had the least
+ * violations.
+ * The engine is also the ScheduleView the constraints are checked against.
+ * The Fixture must not be changed by anything else while an engine uses
+ * it.
+ * @author Haiko
+ */
+public class ConstraintEngine implements ScheduleView {
+
+    /**
+     * One in WORSE moves that make things worse is kept anyway.
+     */
+    private static final int WORSE = 20;
+    /**
+     * Kinds of moves, as kept in the journal.
+     */
+    private static final int SWAP = 0, FLIP = 1, RELABEL = 2;
+
+    /**
+     * The Fixture being repaired.
+     */
+    private final Fixture fixture;
+    /**
+     * Pattern of the Fixture, answering opponentOf() in constant time.
+     */
+    private final ScheduleMatrix pattern;
+    /**
+     * The constraints.
+     */
+    private final Constraint[] constraints;
+    /**
+     * Indexes of the constraints of each team.
+     */
+    private final int[][] byTeam;
+    /**
+     * Violations of each constraint.
+     */
+    private final int[] cost;
+    /**
+     * Sum of cost.
+     */
+    private int total;
+    /**
+     * Slot of each team.
+     */
+    private final int[] slotOf;
+    /**
+     * Amount of matchdates.
+     */
+    private final int dates;
+    /**
+     * Random generator choosing the moves.
+     */
+    private final RandomGenerator random;
+    /**
+     * Moves kept since the least violations were seen, three ints each
+     * (kind, a, b), so they can be undone.
+     */
+    private int[] journal = new int[48];
+    /**
+     * Amount of ints used in the journal.
+     */
+    private int journaled;
+    /**
+     * Scratch space: violations of each constraint before a move.
+     */
+    private final int[] before;
+    /**
+     * Scratch space: mark of the constraints already counted in a move.
+     */
+    private final int[] seen;
+    /**
+     * Current mark of seen.
+     */
+    private int stamp;
+
+    /**
+     * Constructor
+     * @param fixture a generated Fixture
+     * @param constraints the constraints it should follow
+     * @param seed seed of the random generator choosing the moves
+     * @throws IllegalStateException if the Fixture hasn't been generated, or
+     * teams already joined or withdrew (the season is under way, repair it
+     * before)
+     * @throws IllegalArgumentException if a constraint refers to a team the
+     * Fixture doesn't have
+     */
+    public ConstraintEngine(Fixture fixture, Collection<? extends Constraint> constraints, long seed) {
+        if (fixture.hasChanges())
+            throw new IllegalStateException("Teams already joined or withdrew");
+        this.fixture = fixture;
+        ScheduleMatrix p = fixture.pattern();
+        this.pattern = fixture.oracle();
+        this.constraints = constraints.toArray(new Constraint[0]);
+        this.dates = fixture.getMatchdateCount();
+        this.random = new Random(seed);
+
+        int n = fixture.getTeamCount();
+        slotOf = new int[n];
+        for (int s = 0; s < p.size(); s++) {
+            if (fixture.teamAt(s) != TeamDictionary.FREE) slotOf[fixture.teamAt(s)] = s;
+        }
+
+        int[] amount = new int[n];
+        for (Constraint c : this.constraints) {
+            for (int t : c.teams()) {
+                if (t < 0 || t >= n)
+                    throw new IllegalArgumentException("No such team: " + t + " in " + c);
+                amount[t]++;
+            }
+        }
+        byTeam = new int[n][];
+        for (int t = 0; t < n; t++) byTeam[t] = new int[amount[t]];
+        for (int i = 0; i < this.constraints.length; i++) {
+            for (int t : this.constraints[i].teams()) byTeam[t][--amount[t]] = i;
+        }
+
+        cost = new int[this.constraints.length];
+        before = new int[this.constraints.length];
+        seen = new int[this.constraints.length];
+        for (int i = 0; i < cost.length; i++) {
+            cost[i] = violations(i);
+            total += cost[i];
+        }
+    }
+
+    /**
+     * Constructor using the seed of the Fixture.
+     * @param fixture a generated Fixture
+     * @param constraints the constraints it should follow
+     */
+    public ConstraintEngine(Fixture fixture, Collection<? extends Constraint> constraints) {
+        this(fixture, constraints, fixture.getSeed());
+    }
+
+    @Override
+    public int getMatchdateCount() {
+        return dates;
+    }
+
+    @Override
+    public int getTeamCount() {
+        return slotOf.length;
+    }
+
+    @Override
+    public int opponent(int team, int k) {
+        int c = pattern.opponentOf(slotOf[team], fixture.roundAt(k));
+        return c < 0 ? TeamDictionary.FREE : fixture.teamAt(c);
+    }
+
+    @Override
+    public boolean isHome(int team, int k) {
+        int r = fixture.roundAt(k);
+        int slot = slotOf[team];
+        int c = pattern.opponentOf(slot, r);
+        if (c < 0 || fixture.teamAt(c) == TeamDictionary.FREE) return false;
+        return (pattern.get(slot, c) == r) != fixture.isFlipped(r);
+    }
+
+    /**
+     * @return amount of violations left
+     */
+    public int violations() {
+        return total;
+    }
+
+    /**
+     * @return the constraints still violated
+     */
+    public List<Constraint> violated() {
+        List<Constraint> x = new ArrayList<>();
+        for (int i = 0; i < cost.length; i++) {
+            if (cost[i] > 0) x.add(constraints[i]);
+        }
+        return x;
+    }
+
+    /**
+     * Repairs the Fixture until no constraint is violated or the time runs
+     * out, whatever comes first. It can be called again to keep going.
+     * @param budgetMillis time available, in milliseconds
+     * @return amount of violations left (0 if every constraint holds)
+     */
+    public int repair(long budgetMillis) {
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+        int best = total;
+        int m = pattern.size();
+        journaled = 0;
+        while (total > 0 && System.nanoTime() - deadline < 0) {
+            int c = pickViolated();
+            int k = pickDate(c);
+            switch (random.nextInt(3)) {
+                case SWAP:
+                    int other = 1 + random.nextInt(dates);
+                    if (other != k) moveDates(SWAP, k, other);
+                    break;
+                case FLIP:
+                    moveDates(FLIP, fixture.roundAt(k), 0);
+                    break;
+                default:
+                    int[] teams = constraints[c].teams();
+                    int a = slotOf[teams[random.nextInt(teams.length)]];
+                    int b = random.nextInt(m);
+                    if (a != b) relabel(a, b);
+            }
+            if (total < best) {
+                best = total;
+                journaled = 0;
+            }
+        }
+        /* back to the least violations seen */
+        boolean undone = journaled > 0;
+        while (journaled > 0) {
+            journaled -= 3;
+            int kind = journal[journaled];
+            if (kind == RELABEL) swapSlots(journal[journaled+1], journal[journaled+2]);
+            else apply(kind, journal[journaled+1], journal[journaled+2]);
+        }
+        if (undone) {
+            /* only the moves were undone, the costs follow them */
+            total = 0;
+            for (int i = 0; i < cost.length; i++) {
+                cost[i] = violations(i);
+                total += cost[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Picks a violated constraint at random.
+     * @return its index
+     */
+    private int pickViolated() {
+        int start = random.nextInt(cost.length);
+        for (int i = start; ; i = i + 1 == cost.length ? 0 : i + 1) {
+            if (cost[i] > 0) return i;
+        }
+    }
+
+    /**
+     * Picks at random a matchdate where a constraint is violated.
+     * @param c index of the constraint
+     * @return number of the matchdate
+     */
+    private int pickDate(int c) {
+        int start = random.nextInt(dates);
+        for (int i = 0; i < dates; i++) {
+            int k = (start + i) % dates + 1;
+            if (constraints[c].violations(this, k) > 0) return k;
+        }
+        throw new IllegalStateException("Constraint not violated: " + constraints[c]);
+    }
+
+    /**
+     * Violations of a constraint on every matchdate.
+     * @param c index of the constraint
+     * @return the violations
+     */
+    private int violations(int c) {
+        int x = 0;
+        for (int k = 1; k <= dates; k++) x += constraints[c].violations(this, k);
+        return x;
+    }
+
+    /**
+     * Tries a move that only changes two matchdates: swapping them (SWAP,
+     * a and b are matchdates) or flipping a round (FLIP, a is the round).
+     * @param kind SWAP or FLIP
+     * @param a
+     * @param b
+     */
+    private void moveDates(int kind, int a, int b) {
+        int k1, k2;
+        if (kind == SWAP) {
+            k1 = a;
+            k2 = b;
+        } else {
+            k1 = fixture.matchdateOf(a);
+            k2 = fixture.isRound() ? fixture.matchdateOf(a > dates/2 ? a - dates/2 : a + dates/2) : k1;
+        }
+        for (int i = 0; i < constraints.length; i++) {
+            before[i] = constraints[i].violations(this, k1)
+                    + (k2 != k1 ? constraints[i].violations(this, k2) : 0);
+        }
+        apply(kind, a, b);
+        int delta = 0, after;
+        for (int i = 0; i < constraints.length; i++) {
+            after = constraints[i].violations(this, k1)
+                    + (k2 != k1 ? constraints[i].violations(this, k2) : 0);
+            before[i] = after - before[i];
+            delta += before[i];
+        }
+        if (keep(delta)) {
+            for (int i = 0; i < constraints.length; i++) cost[i] += before[i];
+            total += delta;
+            log(kind, a, b);
+        } else {
+            apply(kind, a, b);
+        }
+    }
+
+    /**
+     * Applies (or undoes, it's the same) a SWAP or FLIP move.
+     * @param kind SWAP or FLIP
+     * @param a
+     * @param b
+     */
+    private void apply(int kind, int a, int b) {
+        if (kind == SWAP) fixture.swapMatchdates(a, b);
+        else fixture.flipRound(a);
+    }
+
+    /**
+     * Tries swapping the teams on two slots. Only the constraints of both
+     * teams are checked again, unless one of the slots is the free one: then
+     * the free team changes for everybody, so every constraint is checked.
+     * @param a slot
+     * @param b slot
+     */
+    private void relabel(int a, int b) {
+        int ta = fixture.teamAt(a), tb = fixture.teamAt(b);
+        boolean all = ta == TeamDictionary.FREE || tb == TeamDictionary.FREE;
+        stamp++;
+        int delta = 0;
+        swapSlots(a, b);
+        if (all) {
+            for (int i = 0; i < constraints.length; i++) {
+                seen[i] = stamp;
+                before[i] = violations(i);
+                delta += before[i] - cost[i];
+            }
+        } else {
+            for (int t : new int[] {ta, tb}) {
+                for (int i : byTeam[t]) {
+                    if (seen[i] == stamp) continue;
+                    seen[i] = stamp;
+                    before[i] = violations(i);
+                    delta += before[i] - cost[i];
+                }
+            }
+        }
+        if (keep(delta)) {
+            for (int i = 0; i < constraints.length; i++) {
+                if (seen[i] == stamp) cost[i] = before[i];
+            }
+            total += delta;
+            log(RELABEL, a, b);
+        } else {
+            swapSlots(a, b);
+        }
+    }
+
+    /**
+     * Swaps the teams on two slots, without checking anything.
+     * @param a slot
+     * @param b slot
+     */
+    private void swapSlots(int a, int b) {
+        fixture.swapSlots(a, b);
+        if (fixture.teamAt(a) != TeamDictionary.FREE) slotOf[fixture.teamAt(a)] = a;
+        if (fixture.teamAt(b) != TeamDictionary.FREE) slotOf[fixture.teamAt(b)] = b;
+    }
+
+    /**
+     * Decides whether a move is kept.
+     * @param delta change in the amount of violations
+     * @return true if it's kept
+     */
+    private boolean keep(int delta) {
+        return delta <= 0 || random.nextInt(WORSE) == 0;
+    }
+
+    /**
+     * Adds a kept move to the journal.
+     * @param kind
+     * @param a
+     * @param b
+     */
+    private void log(int kind, int a, int b) {
+        if (journaled + 3 > journal.length) journal = Arrays.copyOf(journal, journal.length * 2);
+        journal[journaled++] = kind;
+        journal[journaled++] = a;
+        journal[journaled++] = b;
+    }
+}
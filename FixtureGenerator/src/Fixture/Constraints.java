@@ -0,0 +1,163 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.Arrays;
+
+/**
+ * The constraints created by the static methods of Constraint.
+ * @author Haiko
+ */
+final class Constraints {
+
+    private Constraints() {
+    }
+
+    /**
+     * A team that can't play, or can't play at home, on a matchdate.
+     */
+    static final class Unavailable implements Constraint {
+
+        /**
+         * Id of the team.
+         */
+        private final int team;
+        /**
+         * Number of the matchdate.
+         */
+        private final int k;
+        /**
+         * True if only its venue is unavailable.
+         */
+        private final boolean venue;
+
+        /**
+         * Constructor
+         * @param team id of the team
+         * @param k number of the matchdate
+         * @param venue true if the team may still play away
+         */
+        Unavailable(int team, int k, boolean venue) {
+            if (team < 0) throw new IllegalArgumentException("No such team: " + team);
+            if (k < 1) throw new IllegalArgumentException("No such matchdate: " + k);
+            this.team = team;
+            this.k = k;
+            this.venue = venue;
+        }
+
+        @Override
+        public int[] teams() {
+            return new int[] {team};
+        }
+
+        @Override
+        public int violations(ScheduleView schedule, int k) {
+            if (k != this.k) return 0;
+            if (venue) return schedule.isHome(team, k) ? 1 : 0;
+            return schedule.opponent(team, k) != TeamDictionary.FREE ? 1 : 0;
+        }
+
+        @Override
+        public String toString() {
+            return (venue ? "venueUnavailable(" : "unavailable(") + team + ", " + k + ")";
+        }
+    }
+
+    /**
+     * Two teams that never play at home on the same matchdate.
+     */
+    static final class SharedVenue implements Constraint {
+
+        /**
+         * Ids of the teams.
+         */
+        private final int a, b;
+
+        /**
+         * Constructor
+         * @param a id of a team
+         * @param b id of the other team
+         */
+        SharedVenue(int a, int b) {
+            if (a < 0 || b < 0 || a == b)
+                throw new IllegalArgumentException("Not two teams: " + a + ", " + b);
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public int[] teams() {
+            return new int[] {a, b};
+        }
+
+        @Override
+        public int violations(ScheduleView schedule, int k) {
+            return schedule.isHome(a, k) && schedule.isHome(b, k) ? 1 : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "sharedVenue(" + a + ", " + b + ")";
+        }
+    }
+
+    /**
+     * Two matches never played on the same matchdate.
+     */
+    static final class NoClash implements Constraint {
+
+        /**
+         * Ids of the teams of both matches.
+         */
+        private final int[] teams;
+
+        /**
+         * Constructor
+         * @param a id of a team of the first match
+         * @param b id of the other team of the first match
+         * @param c id of a team of the second match
+         * @param d id of the other team of the second match
+         */
+        NoClash(int a, int b, int c, int d) {
+            teams = new int[] {a, b, c, d};
+            for (int t : teams) {
+                if (t < 0) throw new IllegalArgumentException("No such team: " + t);
+            }
+            if (a == b || c == d)
+                throw new IllegalArgumentException("A team can't play itself");
+        }
+
+        @Override
+        public int[] teams() {
+            return teams.clone();
+        }
+
+        @Override
+        public int violations(ScheduleView schedule, int k) {
+            return schedule.opponent(teams[0], k) == teams[1]
+                    && schedule.opponent(teams[2], k) == teams[3] ? 1 : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "noClash" + Arrays.toString(teams);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+
+/**
+ * Read-only view of a file that holds only a bounded part of it in memory.
+ * A file that fits in the budget is mapped once, in regions of at most
+ * MAX_WINDOW bytes, and stays mapped for the life of the view. A bigger
+ * file is split in windows of the same size, read with positional reads
+ * into a fixed set of buffers: the least recently used window gives its
+ * buffer to the next one. Nothing is mapped per window, so random access
+ * never piles up mappings that only the garbage collector could release.
+ * Windows overlap by a few bytes, so a value never has to be read from two
+ * of them.
+ * Safe to use from many threads.
+ * @author Haiko
+ */
+final class FileWindows {
+
+    /**
+     * Bytes each window holds beyond its end (the widest value read).
+     */
+    private static final int OVERLAP = 8;
+    /**
+     * Smallest window (a page).
+     */
+    private static final int MIN_WINDOW = 4096;
+    /**
+     * Largest window a ByteBuffer can hold, rounded to a page.
+     */
+    private static final int MAX_WINDOW = 1 << 30;
+    /**
+     * Largest window read at once: a miss costs one read of this size.
+     */
+    private static final int MAX_READ = 1 << 16;
+
+    /**
+     * A window read into a buffer.
+     */
+    private static final class Window {
+        long index;
+        final ByteBuffer buffer;
+
+        Window(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * The file.
+     */
+    private final FileChannel channel;
+    /**
+     * Size of the file.
+     */
+    private final long size;
+    /**
+     * Size of a window (or region), a multiple of MIN_WINDOW.
+     */
+    private final int window;
+    /**
+     * Most windows held at a time.
+     */
+    private final int max;
+    /**
+     * The mapped regions of a file that fits in the budget, null if the
+     * file is read in windows.
+     */
+    private final ByteBuffer[] regions;
+    /**
+     * Windows held, least recently used first.
+     */
+    private final LinkedHashMap<Long, Window> windows;
+
+    /**
+     * Constructor
+     * @param channel the file (not closed here)
+     * @param budget most bytes held at a time (at least one window of a
+     * page is always allowed)
+     * @throws IOException
+     */
+    FileWindows(FileChannel channel, long budget) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        if (size + OVERLAP <= budget) {
+            /* a file that fits in the budget is mapped once */
+            long w = Math.min(MAX_WINDOW, Math.max(MIN_WINDOW, size));
+            this.window = (int) Math.min(MAX_WINDOW, (w + MIN_WINDOW - 1) / MIN_WINDOW * MIN_WINDOW);
+            this.max = (int) ((size + window - 1) / window);
+            this.regions = new ByteBuffer[max];
+            for (int i = 0; i < max; i++) {
+                long start = (long) i * window;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min((long) window + OVERLAP, size - start));
+            }
+            this.windows = null;
+        } else {
+            long w = Math.max(MIN_WINDOW, Math.min(MAX_READ, budget / 4));
+            this.window = (int) ((w + MIN_WINDOW - 1) / MIN_WINDOW * MIN_WINDOW);
+            this.max = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budget / (window + OVERLAP)));
+            this.regions = null;
+            this.windows = new LinkedHashMap<Long, Window>(16, 0.75f, true);
+        }
+    }
+
+    /**
+     * @return size of a window, in bytes
+     */
+    int getWindowSize() {
+        return window;
+    }
+
+    /**
+     * @return amount of windows (or mapped regions) held right now
+     */
+    int getWindowCount() {
+        if (regions != null) return regions.length;
+        synchronized (this) {
+            return windows.size();
+        }
+    }
+
+    /**
+     * Reads a byte.
+     * @param position position in the file
+     * @return the byte
+     */
+    byte get(long position) {
+        if (regions != null) return region(position).get((int) (position % window));
+        synchronized (this) {
+            return window(position).get((int) (position % window));
+        }
+    }
+
+    /**
+     * Reads a char (big-endian).
+     * @param position position in the file
+     * @return the char
+     */
+    char getChar(long position) {
+        if (regions != null) return region(position).getChar((int) (position % window));
+        synchronized (this) {
+            return window(position).getChar((int) (position % window));
+        }
+    }
+
+    /**
+     * Reads an int (big-endian).
+     * @param position position in the file
+     * @return the int
+     */
+    int getInt(long position) {
+        if (regions != null) return region(position).getInt((int) (position % window));
+        synchronized (this) {
+            return window(position).getInt((int) (position % window));
+        }
+    }
+
+    /**
+     * Reads bytes, from as many windows as needed.
+     * @param position position in the file
+     * @param into array (filled)
+     */
+    void get(long position, byte[] into) {
+        int done = 0, chunk;
+        while (done < into.length) {
+            long p = position + done;
+            int offset = (int) (p % window);
+            chunk = Math.min(into.length - done, window - offset);
+            if (regions != null) {
+                region(p).get(offset, into, done, chunk);
+            } else {
+                synchronized (this) {
+                    window(p).get(offset, into, done, chunk);
+                }
+            }
+            done += chunk;
+        }
+    }
+
+    /**
+     * Gets the mapped region a position is in.
+     * @param position position in the file
+     * @return the region
+     */
+    private ByteBuffer region(long position) {
+        if (position < 0 || position >= size)
+            throw new IndexOutOfBoundsException("Position " + position + " of " + size);
+        return regions[(int) (position / window)];
+    }
+
+    /**
+     * Gets the window a position is in, reading it if needed. Called with
+     * the lock held: the buffer is only valid until the lock is released.
+     * @param position position in the file
+     * @return the buffer of the window
+     */
+    private ByteBuffer window(long position) {
+        if (position < 0 || position >= size)
+            throw new IndexOutOfBoundsException("Position " + position + " of " + size);
+        long index = position / window;
+        Window x = windows.get(index);
+        if (x != null) return x.buffer;
+        if (windows.size() < max) {
+            x = new Window(ByteBuffer.allocateDirect(window + OVERLAP));
+        } else {
+            /* the least recently used window gives its buffer */
+            x = windows.remove(windows.keySet().iterator().next());
+        }
+        long start = index * window;
+        ByteBuffer buffer = x.buffer;
+        buffer.clear().limit((int) Math.min((long) window + OVERLAP, size - start));
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0)
+                    throw new EOFException("File shrank to " + channel.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        x.index = index;
+        windows.put(index, x);
+        return buffer;
+    }
+}
@@ -18,7 +18,18 @@
  */
 
 package Fixture;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.random.RandomGenerator;
+import java.util.stream.StreamSupport;
 
 /**
  * An instance of this class is used to generate a pseudorandom yet
@@ -30,9 +41,24 @@ import java.util.Random;
  * matches on the same matchdate or not enough possible match-ups left to fill
  * a matchdate).
  * The resulting Fixture can be seen using the display() or toString() methods.
+ * A Fixture can also be lazy: then no Matchdate is built beforehand, each one
+ * is built when it's requested through matchdate(k), iterator() or stream().
  * It is worth noting that the fixture-generating algorithm (implemented in the
  * method generate() ) is a random algorithm and the running it twice with the
- * same input DOES NOT guarantee the same output.
+ * same input DOES NOT guarantee the same output, unless the same seed is
+ * given: every Fixture has a seed (see getSeed()) and building a Fixture with
+ * the same teams, options and seed gives back exactly the same Fixture.
+ * Teams can withdraw or join in the middle of the season (see withdraw() and
+ * admit()) without generating the Fixture again.
+ * A season too big for the heap can be spilled to a file and read back
+ * through a bounded set of windows, see BinaryFixtureWriter.spill().
+ * The time each phase takes (matrix, matchdates, shuffles, rendering...) can
+ * be followed with a FixtureListener, see FixtureMetrics, or with the JFR
+ * event Fixture.Phase.
+ * FixtureValidator checks a generated Fixture in O(total matches), and
+ * FixtureExporter exports its matches as CSV, JSON Lines or a columnar file.
+ * FixtureCalendar gives each matchdate a date and each match a kick-off
+ * time and a venue.
  * 
  * Logic:
  * - a Fixture is a Matchdate array
@@ -52,16 +78,28 @@ import java.util.Random;
  *
  * @author Haiko
  */
-public class Fixture {
+public class Fixture implements Iterable<Matchdate>, ScheduleView {
     
     /**
      * Matrix used to generate the pattern (and order) of matches.
      */
-    private Integer [][] matrix;
+    private ScheduleMatrix matrix;
     /**
-     * List of teams.
+     * Dictionary of the teams, every team is handled by its id.
      */
-    private String [] teams;
+    private TeamDictionary teams;
+    /**
+     * Team (id) on each slot of the matrix: row f of the matrix belongs to
+     * team slots[f]. If there's an odd number of teams, the extra slot holds
+     * TeamDictionary.FREE.
+     */
+    private int [] slots;
+    /**
+     * Teams that joined or withdrew in the middle of the season, by slot,
+     * null if there weren't any: from matchdate changes[s][2i] on, slot s
+     * holds team changes[s][2i+1] instead of slots[s].
+     */
+    private int [][] changes;
     /**
      * The string that will be used to denote a free team on a matchdate. 
      * (e.g. "Free", "Libre", "FREI", "Doesn't play", etc.)
@@ -80,13 +118,59 @@ public class Fixture {
      */
     private final Boolean odd;
     /**
-     * Corresponding array of Matchdates.
+     * Pattern shared by every Fixture of the same size, null until the
+     * Fixture is generated.
+     */
+    private RoundRobinTemplate template;
+    /**
+     * Order of the matchdates: matchdate k shows the matches of round
+     * rounds[k-1] of the pattern. It's only a view, reordering the
+     * matchdates (randomizeMatchdatesOrder(), setMatchdatesOrder(), the
+     * ConstraintEngine) never touches the pattern or any Match.
+     */
+    private int [] rounds;
+    /**
+     * Matchdate showing each round of the pattern (inverse of rounds).
+     */
+    private int [] matchdates;
+    /**
+     * True for the rounds of the pattern whose home and away teams are
+     * switched.
      */
-    private Matchdate [] dates;
+    private boolean [] flipped;
     /**
-     * Order of the matchdates
+     * Season of every team, null until it's first needed (and whenever the
+     * Fixture changed since it was built), so a Fixture that is never
+     * queried doesn't pay for it.
      */
-    private Integer [] matchdatesOrder;
+    private volatile ScheduleIndex index;
+    /**
+     * True if generate() should build the whole matrix, False if it should
+     * use a PairingOracle that computes each cell when needed.
+     */
+    private boolean materialize;
+    /**
+     * True if the Matchdates should be built only when requested.
+     */
+    private boolean lazy;
+    /**
+     * True if the matrix and the Matchdates should be built using every
+     * core.
+     */
+    private boolean parallel;
+    /**
+     * True if generate() should use the circle pattern (CircleOracle),
+     * which has the least possible breaks.
+     */
+    private boolean minBreaks;
+    /**
+     * Seed of the random generator used by the randomization methods.
+     */
+    private final long seed;
+    /**
+     * Random generator used by the randomization methods.
+     */
+    private final RandomGenerator random;
     
     /**
      * Full constructor
@@ -97,29 +181,61 @@ public class Fixture {
      * @param autoRandomDates true if the matchdate order should be randomized
      * @param autoGenerate true if the generation of the fixture should be 
      * automatic
+     * @param materialize true if the whole matrix should be built, false if
+     * its cells should be computed when needed (linear instead of quadratic
+     * memory, useful for very large amounts of teams)
+     * @param lazy true if each Matchdate should be built only when requested
+     * instead of building all of them now
+     * @param seed seed of the random generator, the same seed (with the same
+     * teams and options) always gives the same Fixture
      */
     public Fixture (String [] teams, String freeDefault, 
             boolean round, 
             boolean autoRandomTeams, 
             boolean autoRandomDates, 
-            boolean autoGenerate)
+            boolean autoGenerate,
+            boolean materialize,
+            boolean lazy,
+            long seed)
+    {
+        this(teams,new FixtureOptions(freeDefault,round,autoRandomTeams,
+                autoRandomDates,autoGenerate,materialize,lazy),seed);
+    }
+    
+    /**
+     * Constructor with all the options in one object.
+     * @param teams an array of strings with team names
+     * @param options see FixtureOptions
+     * @param seed seed of the random generator, the same seed (with the same
+     * teams and options) always gives the same Fixture
+     */
+    public Fixture (String [] teams, FixtureOptions options, long seed)
     {
         n = teams.length;
-        this.round = round;
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.freeDefault = options.getFreeDefault();
+        this.round = options.isRound();
+        this.materialize = options.isMaterialize();
+        this.lazy = options.isLazy();
+        this.parallel = options.isParallel();
+        this.minBreaks = options.isMinBreaks();
         
+        this.teams = new TeamDictionary(teams, freeDefault);
         if (n % 2 == 0) 
         {
-            this.teams = new String [n]; 
+            this.slots = new int [n]; 
             odd = false;
         }
         else 
         { 
-            this.teams = new String [n+1]; 
+            this.slots = new int [n+1]; 
             odd = true; 
         }
         /* if there's an odd number of teams, the matrix will still be even, the
         extra "team" is free */
-        System.arraycopy(teams, 0, this.teams, 0, n);
+        for (int i = 0; i < n; i++) slots[i] = i;
+        if (odd) slots[n] = TeamDictionary.FREE;
         
         /* determining the amount of matchdates */
         int aux;
@@ -128,20 +244,92 @@ public class Fixture {
         else if(!odd && round) aux = 2*(n-1);
         else aux = n-1;
         
-        matchdatesOrder = new Integer[aux];
+        rounds = new int[aux];
+        matchdates = new int[aux];
+        flipped = new boolean[aux];
         
         /* default order of matchdates */
-        for(int i = 0; i < matchdatesOrder.length; i++)
+        for(int i = 0; i < rounds.length; i++)
         {
-            matchdatesOrder[i] = i+1;
+            rounds[i] = i+1;
+            matchdates[i] = i+1;
         }
         
-        if(autoRandomTeams) randomizeTeamsOrder();
-        if(autoRandomDates) randomizeMatchdatesOrder();
-        if(autoGenerate)    generate();
+        if(options.isRandomTeams()) randomizeTeamsOrder();
+        if(options.isRandomDates()) randomizeMatchdatesOrder();
+        if(options.isGenerate())    generate();
 
-        dates = new Matchdate[round ? (matrix.length-1)*2 : (matrix.length-1)];
-        generateMatchdates();
+        /* without a matrix there's nothing to build yet, matchdate(k) will
+        build each Matchdate once generate() has been called */
+        if (!lazy && matrix != null) {
+            generateMatchdates();
+        }
+    }
+    
+    /**
+     * Constructor with a random seed, otherwise same as full constructor.
+     * @param teams an array of strings with team names
+     * @param freeDefault 
+     * @param round two rounds or just one
+     * @param autoRandomTeams true if the team order should be randomized
+     * @param autoRandomDates true if the matchdate order should be randomized
+     * @param autoGenerate true if the generation of the fixture should be 
+     * automatic
+     * @param materialize true if the whole matrix should be built
+     * @param lazy true if each Matchdate should be built only when requested
+     */
+    public Fixture (String [] teams, String freeDefault, 
+            boolean round, 
+            boolean autoRandomTeams, 
+            boolean autoRandomDates, 
+            boolean autoGenerate,
+            boolean materialize,
+            boolean lazy)
+    {
+        this(teams,freeDefault,round,autoRandomTeams,autoRandomDates,autoGenerate,materialize,lazy,
+                new Random().nextLong());
+    }
+    
+    /**
+     * Constructor that builds every Matchdate beforehand, otherwise same as
+     * full constructor.
+     * @param teams an array of strings with team names
+     * @param freeDefault 
+     * @param round two rounds or just one
+     * @param autoRandomTeams true if the team order should be randomized
+     * @param autoRandomDates true if the matchdate order should be randomized
+     * @param autoGenerate true if the generation of the fixture should be 
+     * automatic
+     * @param materialize true if the whole matrix should be built
+     */
+    public Fixture (String [] teams, String freeDefault, 
+            boolean round, 
+            boolean autoRandomTeams, 
+            boolean autoRandomDates, 
+            boolean autoGenerate,
+            boolean materialize)
+    {
+        this(teams,freeDefault,round,autoRandomTeams,autoRandomDates,autoGenerate,materialize,false);
+    }
+    
+    /**
+     * Constructor that always builds the whole matrix, otherwise same as
+     * full constructor.
+     * @param teams an array of strings with team names
+     * @param freeDefault 
+     * @param round two rounds or just one
+     * @param autoRandomTeams true if the team order should be randomized
+     * @param autoRandomDates true if the matchdate order should be randomized
+     * @param autoGenerate true if the generation of the fixture should be 
+     * automatic
+     */
+    public Fixture (String [] teams, String freeDefault, 
+            boolean round, 
+            boolean autoRandomTeams, 
+            boolean autoRandomDates, 
+            boolean autoGenerate)
+    {
+        this(teams,freeDefault,round,autoRandomTeams,autoRandomDates,autoGenerate,true);
     }
     
     /**
@@ -193,122 +381,736 @@ public class Fixture {
         this(teams,true);
     }
     
+    /**
+     * Reproducible constructor: same as Fixture(teams, freeDefault, round)
+     * but with a given seed.
+     * @param teams
+     * @param freeDefault
+     * @param round
+     * @param seed seed of the random generator
+     */
+    public Fixture (String [] teams, String freeDefault, boolean round, long seed)
+    {
+        this(teams,freeDefault,round,true,true,true,true,false,seed);
+    }
+    
+    /**
+     * Reproducible simple constructor: same as Fixture(teams) but with a
+     * given seed.
+     * @param teams
+     * @param seed seed of the random generator
+     */
+    public Fixture (String [] teams, long seed) {
+        this(teams,"Free",true,seed);
+    }
+    
+    /**
+     * Gets the seed of the random generator. Together with the teams and the
+     * options it's all that is needed to build this Fixture again.
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+    
     /**
      * Both randomization methods are called
      */
     public void randomize () {
-        randomizeTeamsOrder();
-        randomizeMatchdatesOrder();
+        randomize(random);
+    }
+    
+    /**
+     * Both randomization methods are called using the given generator.
+     * @param random random generator
+     */
+    public void randomize (RandomGenerator random) {
+        randomizeTeamsOrder(random);
+        randomizeMatchdatesOrder(random);
     }
     
     /**
      * The list of teams is randomized.
      */
     public void randomizeTeamsOrder() {
-        int x; String aux;
-        Random random = new Random();
-        for (int i = 0; i < n; i++) {
-            x = random.nextInt(n);
-            aux = teams[i];
-            teams[i] = teams[x];
-            teams[x] = aux;
-        }
+        randomizeTeamsOrder(random);
+    }
+    
+    /**
+     * The list of teams is randomized using the given generator
+     * (Fisher-Yates shuffle, every order is equally likely).
+     * @param random random generator
+     */
+    public void randomizeTeamsOrder(RandomGenerator random) {
+        index = null;
+        if (changes != null)
+            throw new IllegalStateException("Teams already joined or withdrew, the order is fixed");
+        Probe probe = Probe.start(FixtureListener.Phase.RANDOMIZE_TEAMS);
+        shuffle(slots, n, random);
+        if (probe != null) probe.end(slots.length, n);
     }
     
     /**
      * The list of numbers for matchdates is randomized.
      */
     public void randomizeMatchdatesOrder() {
-        int x; int aux;
-        Random random = new Random();
-        for (int i = 0; i < matchdatesOrder.length; i++) {
-            x = random.nextInt(matchdatesOrder.length);
-            aux = matchdatesOrder[i];
-            matchdatesOrder[i] = matchdatesOrder[x];
-            matchdatesOrder[x] = aux;
+        randomizeMatchdatesOrder(random);
+    }
+    
+    /**
+     * The list of numbers for matchdates is randomized using the given
+     * generator (Fisher-Yates shuffle, every order is equally likely).
+     * With the circle pattern (minBreaks) a shuffle would bring the breaks
+     * back, so the order of the rounds is only rotated by an even amount of
+     * rounds and maybe reversed (both legs alike), and the legs maybe
+     * swapped: each of those keeps the least possible breaks, and the two
+     * matches of a pair stay a leg apart.
+     * Only the order is shuffled, so it takes O(matchdates) whether the
+     * Fixture was generated or not.
+     * @param random random generator
+     */
+    public void randomizeMatchdatesOrder(RandomGenerator random) {
+        index = null;
+        Probe probe = Probe.start(FixtureListener.Phase.RANDOMIZE_DATES);
+        shuffleRounds(rounds, slots.length, round, minBreaks, random);
+        for (int k = 1; k <= rounds.length; k++) matchdates[rounds[k-1]-1] = k;
+        if (probe != null) probe.end(slots.length, rounds.length);
+    }
+    
+    /**
+     * Fisher-Yates shuffle of the first elements of an array (every order
+     * is equally likely).
+     * @param x the array
+     * @param length amount of elements shuffled
+     * @param random random generator
+     */
+    static void shuffle (int [] x, int length, RandomGenerator random) {
+        int j, aux;
+        for (int i = length-1; i > 0; i--) {
+            j = random.nextInt(i+1);
+            aux = x[i];
+            x[i] = x[j];
+            x[j] = aux;
         }
     }
-
+    
+    /**
+     * Randomizes an order of the matchdates as randomizeMatchdatesOrder()
+     * does, so every generator of round robins (e.g. GroupStageFixture)
+     * draws the same order from the same seed.
+     * @param rounds the order, its first (m-1) or 2*(m-1) elements are
+     * rewritten: element k-1 is the round shown on matchdate k
+     * @param m amount of slots (even)
+     * @param round true if there are two legs
+     * @param minBreaks true for the circle pattern, whose breaks are kept
+     * @param random random generator
+     */
+    static void shuffleRounds (int [] rounds, int m, boolean round, boolean minBreaks,
+            RandomGenerator random) {
+        int k = m - 1;
+        if (minBreaks) {
+            int shift = 2 * random.nextInt((k + 1) / 2);
+            boolean reverse = random.nextBoolean();
+            boolean swap = round && random.nextBoolean();
+            for (int i = 0; i < k; i++) {
+                int r = (i + shift) % k + 1;
+                int at = reverse ? k - 1 - i : i;
+                rounds[at] = swap ? r + k : r;
+                if (round) rounds[at + k] = swap ? r : r + k;
+            }
+        } else {
+            shuffle(rounds, round ? 2 * k : k, random);
+        }
+    }
+    
+    /**
+     * Gets the order of the matchdates.
+     * @return the round of the pattern shown on each matchdate: element k-1
+     * is the round shown on matchdate k (a copy)
+     */
+    public int [] getMatchdatesOrder() {
+        return rounds.clone();
+    }
+    
+    /**
+     * Sets the order of the matchdates. Rounds are numbered as in the
+     * default order (1 to getMatchdateCount()), so setting 1, 2, 3... brings
+     * the default order back. Takes O(matchdates), nothing else changes.
+     * @param order the round of the pattern shown on each matchdate: element
+     * k-1 is the round shown on matchdate k
+     * @throws IllegalArgumentException if it isn't a permutation of 1 to
+     * getMatchdateCount()
+     */
+    public void setMatchdatesOrder(int [] order) {
+        if (order.length != rounds.length)
+            throw new IllegalArgumentException("Expected " + rounds.length
+                    + " matchdates, got " + order.length);
+        int [] inverse = new int[order.length];
+        for (int k = 1; k <= order.length; k++) {
+            int r = order[k-1];
+            if (r < 1 || r > order.length)
+                throw new IllegalArgumentException("No such round: " + r);
+            if (inverse[r-1] != 0)
+                throw new IllegalArgumentException("Round " + r + " is shown on matchdates "
+                        + inverse[r-1] + " and " + k);
+            inverse[r-1] = k;
+        }
+        System.arraycopy(order, 0, rounds, 0, order.length);
+        matchdates = inverse;
+        index = null;
+    }
+    
     /**
      * The matrix and its pattern are generated.
+     * The pattern only depends on the amount of teams, so it comes from the
+     * RoundRobinTemplate shared by every Fixture of the same size: it's only
+     * built the first time. If the matrix isn't materialized, a
+     * PairingOracle (or a CircleOracle if minBreaks is set) takes its place.
+     * A matrix given by newMatrix() gets a template of its own instead.
      */
     public void generate() {
-        if (odd) this.teams[n] = this.freeDefault;
-        if (odd)
-            matrix = new Integer [n+1][n+1]; // the matrix is generated according to the amount of teams
+        index = null;
+        ScheduleMatrix own = materialize ? newMatrix(slots.length) : null;
+        if (own != null)
+            template = new RoundRobinTemplate(slots.length, minBreaks, own, parallel);
+        else
+            template = RoundRobinTemplate.of(slots.length, minBreaks, materialize, parallel);
+        matrix = template.pattern();
+    }
+    
+    /**
+     * Creates the (empty) matrix generate() fills, if the matrix is
+     * materialized. By default there's none: the Fixture uses the shared
+     * template, whose matrix is the most compact one for the amount of
+     * teams (ScheduleMatrix.allocate()). Override to plug in another
+     * ScheduleMatrix; the Fixture then builds a template of its own around
+     * it.
+     * @param m amount of rows (and columns)
+     * @return an empty matrix, null for the shared one
+     */
+    protected ScheduleMatrix newMatrix(int m) {
+        return null;
+    }
+    
+    /**
+     * The pattern of the Fixture as an oracle, which finds the opponent of a
+     * team in constant time (a materialized matrix has to be scanned).
+     * @return the matrix if it's an oracle, otherwise an oracle with the
+     * same pattern
+     * @throws IllegalStateException if the fixture hasn't been generated
+     */
+    ScheduleMatrix oracle() {
+        pattern();
+        return template.oracle();
+    }
+    
+    /**
+     * Method that generates the matches of every matchdate.
+     * The matches are kept by the template, so only the first Fixture of
+     * each size builds them; the others just find them there.
+     * Package-private so the benchmarks can measure it on its own.
+     */
+    void generateMatchdates() {
+        pattern();
+        template.buildLegs(round ? 2 : 1, parallel);
+    }
+    
+    /**
+     * Creates the Match where the team on slot f plays at home against the
+     * team on slot c (only one of them plays if the other one is free).
+     * @param f home slot
+     * @param c away slot
+     * @param k number of the matchdate
+     * @return the match, null if both slots are free
+     */
+    private Match newMatch(int f, int c, int k) {
+        int home = teamAt(f, k), away = teamAt(c, k);
+        if (home == TeamDictionary.FREE && away == TeamDictionary.FREE)
+            return null;
+        else if (home == TeamDictionary.FREE)
+            return new Match(teams.name(away));
+        else if (away == TeamDictionary.FREE)
+            return new Match(teams.name(home));
         else
-            matrix = new Integer [n][n];
-        int m = matrix.length; int aux;
-        for (int i = 0; i < m; i++) {
-            matrix[i][i] = 0; // the main diagonal is set to ZERO
+            return new Match(teams.name(home),teams.name(away));
+    }
+    
+    /**
+     * Amount of matchdates of the Fixture.
+     * @return amount of matchdates
+     */
+    @Override
+    public int getMatchdateCount() {
+        int m = slots.length;
+        return round ? (m-1)*2 : m-1;
+    }
+    
+    /**
+     * Amount of matches on each matchdate (a free team counts as a match).
+     * @return half the amount of slots
+     */
+    int getMatchesPerMatchdate() {
+        return slots.length / 2;
+    }
+    
+    /**
+     * Amount of teams of the Fixture (the free team not included). Teams
+     * that withdrew or joined in the middle of the season are included.
+     * @return amount of teams
+     */
+    @Override
+    public int getTeamCount() {
+        return teams.size();
+    }
+    
+    /**
+     * @return true if the tournament is two rounds
+     */
+    public boolean isRound() {
+        return round;
+    }
+    
+    /**
+     * Counts the breaks of the Fixture: the times a team plays at home (or
+     * away) on two matchdates in a row. A matchdate on which a team is free
+     * isn't a break, and the matchdates before and after it don't make one.
+     * Takes O(n^2) time and O(n) memory.
+     * @return amount of breaks of every team together
+     */
+    public int breaks() {
+        int half = getMatchesPerMatchdate();
+        long [] round = new long[half];
+        /* 0: didn't play the last matchdate, 1: played at home, 2: away */
+        byte [] last = new byte[slots.length];
+        byte [] now = new byte[slots.length];
+        byte [] x;
+        int breaks = 0, home, away;
+        for (int k = 1; k <= getMatchdateCount(); k++) {
+            pairs(k, round);
+            Arrays.fill(now, (byte) 0);
+            for (long pair : round) {
+                home = Match.home(pair);
+                away = Match.away(pair);
+                if (teamAt(home, k) == TeamDictionary.FREE || teamAt(away, k) == TeamDictionary.FREE) continue;
+                now[home] = 1;
+                now[away] = 2;
+                if (last[home] == 1) breaks++;
+                if (last[away] == 2) breaks++;
+            }
+            x = last; last = now; now = x;
         }
-        for (int f = 1; f < m; f++) {
-            matrix[f][0] = f*2; // all even numbers in the first column
+        return breaks;
+    }
+    
+    /**
+     * Gets the season of a team: its opponent on every matchdate and whether
+     * it plays at home. Takes O(matchdates); the first query (after any
+     * change to the Fixture) builds the index of every team, which takes
+     * O(total matches) time and memory.
+     * @param team name of the team
+     * @return the season, a copy
+     * @throws IllegalArgumentException if there's no such team
+     */
+    public TeamSchedule scheduleOf(String team) {
+        int id = idOf(team);
+        ScheduleIndex x = index();
+        return new TeamSchedule(id, teams, x.opponents(id), x.homes(id));
+    }
+    
+    /**
+     * Opponent of a team on a matchdate, in constant time.
+     * @param team name of the team
+     * @param k number of the matchdate, from 1 to getMatchdateCount()
+     * @return name of the opponent, null if the team is free
+     * @throws IllegalArgumentException if there's no such team
+     */
+    public String opponent(String team, int k) {
+        int id = opponent(idOf(team), k);
+        return id == TeamDictionary.FREE ? null : teams.name(id);
+    }
+    
+    /**
+     * Opponent of a team on a matchdate, in constant time.
+     * @param team id of the team
+     * @param k number of the matchdate, from 1 to getMatchdateCount()
+     * @return id of the opponent, TeamDictionary.FREE if the team is free
+     */
+    @Override
+    public int opponent(int team, int k) {
+        if (k < 1 || k > getMatchdateCount())
+            throw new IndexOutOfBoundsException("No such matchdate: " + k);
+        return index().opponent(team, k);
+    }
+    
+    /**
+     * Checks if a team plays at home on a matchdate, in constant time.
+     * @param team id of the team
+     * @param k number of the matchdate, from 1 to getMatchdateCount()
+     * @return true if it plays at home (false if it's free)
+     */
+    @Override
+    public boolean isHome(int team, int k) {
+        if (k < 1 || k > getMatchdateCount())
+            throw new IndexOutOfBoundsException("No such matchdate: " + k);
+        return index().isHome(team, k);
+    }
+    
+    /**
+     * Gets the index of the season of every team, building it if needed.
+     * Two threads may both build it, but each one gets a complete index.
+     * @return the index
+     * @throws IllegalStateException if the fixture hasn't been generated
+     */
+    private ScheduleIndex index() {
+        ScheduleIndex x = index;
+        if (x == null) {
+            pattern();
+            x = new ScheduleIndex(this);
+            index = x;
         }
-        /* Filling in the lower left half of the matrix */
-        for (int c = 1; c < m-1; c++) {
-            for (int f = c+1; f < m; f++) {
-                if (c == 1) {
-                    matrix[f][c] = f + 1; // all ordered numbers in second column
-                }
-                else
-                {
-                    matrix[f][c] = matrix[f-1][c-1] + 2;
-                    // equal to the inmediately superior left value plus 2
-                }
+        return x;
+    }
+    
+    /**
+     * Id of a team.
+     * @param team name of the team
+     * @return the id
+     * @throws IllegalArgumentException if there's no such team
+     */
+    private int idOf(String team) {
+        int id = teams.idOf(team);
+        if (id == TeamDictionary.FREE)
+            throw new IllegalArgumentException("No such team: " + team);
+        return id;
+    }
+    
+    /**
+     * Dictionary of the teams.
+     * @return the dictionary
+     */
+    public TeamDictionary getTeams() {
+        return teams;
+    }
+    
+    /**
+     * Team on a slot of the matrix at the start of the season.
+     * @param slot row (or column) of the matrix
+     * @return id of the team, TeamDictionary.FREE for the free team
+     */
+    int teamAt(int slot) {
+        return slots[slot];
+    }
+    
+    /**
+     * Team on a slot of the matrix on a matchdate, once the teams that
+     * joined or withdrew are taken into account.
+     * @param slot row (or column) of the matrix
+     * @param k number of the matchdate
+     * @return id of the team, TeamDictionary.FREE for the free team
+     */
+    int teamAt(int slot, int k) {
+        if (changes != null && changes[slot] != null) {
+            int [] x = changes[slot];
+            for (int i = x.length - 2; i >= 0; i -= 2) {
+                if (k >= x[i]) return x[i+1];
             }
         }
-        /* Filling the upper right half of the matrix. */
-        for (int f = 0; f < m -1; f++) {
-            for (int c = f+1; c < m; c++) {
-                matrix[f][c] = matrix[c][f] > (m-1) ? matrix[c][f] - (m-1) : matrix[c][f] + (m-1); 
+        return slots[slot];
+    }
+    
+    /**
+     * Slots a team is on during the season (more than one only if it
+     * withdrew and joined again).
+     * @param team id of the team
+     * @return the slots
+     */
+    int [] slotsOf(int team) {
+        int [] x = new int[1];
+        int found = 0;
+        for (int s = 0; s < slots.length; s++) {
+            boolean on = slots[s] == team;
+            if (!on && changes != null && changes[s] != null) {
+                for (int i = 1; i < changes[s].length; i += 2) on |= changes[s][i] == team;
             }
-        }
-        
-        /* Switch half of the home/away matches (all evens) */
-        int temp;
-        for (int c = 1; c < m-1; c++) {
-            for (int f = c+1; f < m; f++) {
-                if (matrix[f][c] % 2 == 0) {
-                    temp = matrix[f][c];
-                    matrix[f][c] = matrix[c][f];
-                    matrix[c][f] = temp;
-                }
+            if (on) {
+                if (found == x.length) x = Arrays.copyOf(x, found * 2);
+                x[found++] = s;
             }
         }
+        return Arrays.copyOf(x, found);
     }
     
     /**
-     * Method that generates the array of matchdates.
+     * @return true if teams joined or withdrew in the middle of the season
      */
-    private void generateMatchdates() {
-        
-        for (int i = 0; i < dates.length; i++) {
-            dates[i] = new Matchdate(i+1);
-            for (int f = 0; f < matrix.length; f++) {
-                for (int c = 0; c < matrix.length; c++) {
-                    if (matrix[f][c] == i+1) {
-                        if (teams[f].compareTo("LIBRE") == 0)
-                            dates[i].addMatch(new Match(teams[c]));
-                        else if (teams[c].compareTo("LIBRE") == 0)
-                            dates[i].addMatch(new Match(teams[f]));
-                        else
-                            dates[i].addMatch(new Match(teams[f],teams[c]));
-                        
-                    }
-                }
+    public boolean hasChanges() {
+        return changes != null;
+    }
+    
+    /**
+     * A team withdraws after some matchdates were played: from then on the
+     * teams that should have played against it are free instead.
+     * Nothing is generated again, the matchdates already played don't
+     * change and the rest keep every other match where it was.
+     * @param team name of the team
+     * @param played amount of matchdates already played (0 to
+     * getMatchdateCount())
+     * @throws IllegalArgumentException if there's no such team
+     * @throws IllegalStateException if the team doesn't play anymore
+     */
+    public void withdraw(String team, int played) {
+        int id = idOf(team);
+        int s = slotAt(id, played);
+        if (s < 0)
+            throw new IllegalStateException("The team doesn't play anymore: " + team);
+        change(s, played, TeamDictionary.FREE);
+    }
+    
+    /**
+     * A team joins after some matchdates were played. It takes the place of
+     * the free team or of a team that withdrew, and plays its remaining
+     * matches; there's no other place for it without generating the whole
+     * Fixture again.
+     * @param team name of the team (it may be a team that withdrew)
+     * @param played amount of matchdates already played (0 to
+     * getMatchdateCount())
+     * @throws IllegalArgumentException if the team already plays
+     * @throws IllegalStateException if there's no free place
+     */
+    public void admit(String team, int played) {
+        int id = teams.idOf(team);
+        if (id != TeamDictionary.FREE && slotAt(id, played) >= 0)
+            throw new IllegalArgumentException("The team already plays: " + team);
+        int s = slotAt(TeamDictionary.FREE, played);
+        if (s < 0)
+            throw new IllegalStateException("No free place for " + team
+                    + ": a team can only take the place of the free team or of a team that withdrew");
+        if (id == TeamDictionary.FREE) {
+            teams = teams.with(team);
+            id = teams.size() - 1;
+        }
+        change(s, played, id);
+    }
+    
+    /**
+     * Teams withdraw and join after some matchdates were played, see
+     * withdraw() and admit(). Teams withdraw first, so the ones joining
+     * can take their places.
+     * @param played amount of matchdates already played
+     * @param withdrawn names of the teams that withdraw
+     * @param admitted names of the teams that join
+     */
+    public void update(int played, Collection<String> withdrawn, Collection<String> admitted) {
+        for (String team : withdrawn) withdraw(team, played);
+        for (String team : admitted) admit(team, played);
+    }
+    
+    /**
+     * Finds the slot a team is on right after some matchdates were played.
+     * @param team id of the team, or FREE
+     * @param played amount of matchdates already played
+     * @return the slot, -1 if none
+     */
+    private int slotAt(int team, int played) {
+        if (played < 0 || played > getMatchdateCount())
+            throw new IllegalArgumentException("No such amount of matchdates: " + played);
+        for (int s = 0; s < slots.length; s++) {
+            if (teamAt(s, played + 1) == team) return s;
+        }
+        return -1;
+    }
+    
+    /**
+     * Puts a team on a slot from a matchdate on.
+     * @param s slot
+     * @param played amount of matchdates already played
+     * @param team id of the team, or FREE
+     */
+    private void change(int s, int played, int team) {
+        index = null;
+        if (changes == null) changes = new int[slots.length][];
+        int [] x = changes[s];
+        int from = played + 1;
+        if (x != null && x[x.length - 2] > from)
+            throw new IllegalArgumentException("A later change was already made on matchdate "
+                    + x[x.length - 2]);
+        if (x != null && x[x.length - 2] == from) {
+            x[x.length - 1] = team;
+        } else {
+            x = x == null ? new int[2] : Arrays.copyOf(x, x.length + 2);
+            x[x.length - 2] = from;
+            x[x.length - 1] = team;
+            changes[s] = x;
+        }
+    }
+    
+    /**
+     * Round of the pattern shown on a matchdate.
+     * @param k number of the matchdate
+     * @return the round
+     */
+    int roundAt(int k) {
+        return rounds[k-1];
+    }
+    
+    /**
+     * Matchdate showing a round of the pattern.
+     * @param round round of the pattern
+     * @return number of the matchdate
+     */
+    int matchdateOf(int round) {
+        return matchdates[round-1];
+    }
+    
+    /**
+     * Checks if the home and away teams of a round are switched.
+     * @param round round of the pattern
+     * @return true if they're switched
+     */
+    boolean isFlipped(int round) {
+        return flipped[round-1];
+    }
+    
+    /**
+     * Swaps the rounds shown on two matchdates.
+     * @param a number of a matchdate
+     * @param b number of a matchdate
+     */
+    void swapMatchdates(int a, int b) {
+        index = null;
+        int x = rounds[a-1];
+        rounds[a-1] = rounds[b-1];
+        rounds[b-1] = x;
+        matchdates[rounds[a-1]-1] = a;
+        matchdates[rounds[b-1]-1] = b;
+    }
+    
+    /**
+     * Switches the home and away teams of a round. In a two rounds
+     * tournament the other leg of the same matches is switched as well, so
+     * every team still plays each opponent once at home and once away.
+     * @param round round of the pattern
+     */
+    void flipRound(int round) {
+        index = null;
+        flipped[round-1] = !flipped[round-1];
+        if (this.round) {
+            int legs = rounds.length / 2;
+            int other = round > legs ? round - legs : round + legs;
+            flipped[other-1] = !flipped[other-1];
+        }
+    }
+    
+    /**
+     * Swaps the teams on two slots of the matrix.
+     * @param a slot
+     * @param b slot
+     */
+    void swapSlots(int a, int b) {
+        index = null;
+        int x = slots[a];
+        slots[a] = slots[b];
+        slots[b] = x;
+    }
+    
+    /**
+     * The matrix (or the PairingOracle taking its place).
+     * @return the matrix
+     * @throws IllegalStateException if the fixture hasn't been generated
+     */
+    ScheduleMatrix pattern() {
+        if (matrix == null)
+            throw new IllegalStateException("The fixture hasn't been generated");
+        return matrix;
+    }
+    
+    /**
+     * Gets a Matchdate. Its Match objects are created now from the packed
+     * matches, so every call gives a new Matchdate. If the matches weren't
+     * built beforehand (lazy Fixture), they're built now from the oracle of
+     * the pattern: every team looks up its opponent in constant time, so the
+     * whole Matchdate costs O(n).
+     * @param k number of the matchdate, from 1 to getMatchdateCount()
+     * @return the Matchdate
+     */
+    public Matchdate matchdate(int k) {
+        Probe probe = Probe.start(FixtureListener.Phase.MATCHDATE);
+        long [] round = new long[getMatchesPerMatchdate()];
+        pairs(k, round);
+        Matchdate date = new Matchdate(k, round.length);
+        Match match;
+        for (long pair : round) {
+            match = newMatch(Match.home(pair), Match.away(pair), k);
+            if (match != null) date.addMatch(match);
+        }
+        if (probe != null) probe.end(slots.length, date.matches.size());
+        return date;
+    }
+    
+    /**
+     * Gets the matches of a matchdate as packed pairs of slots (see
+     * Match.pack()), without creating any Match. On a lazy Fixture they're
+     * built now from the oracle of the pattern.
+     * @param k number of the matchdate, from 1 to getMatchdateCount()
+     * @param into array of at least getMatchesPerMatchdate() pairs (filled)
+     */
+    void pairs(int k, long [] into) {
+        if (k < 1 || k > getMatchdateCount())
+            throw new IndexOutOfBoundsException("No such matchdate: " + k);
+        int half = getMatchesPerMatchdate();
+        int r = rounds[k-1];
+        pattern();
+        template.round(r, into);
+        if (flipped[r-1]) {
+            for (int i = 0; i < half; i++) {
+                into[i] = Match.pack(Match.away(into[i]), Match.home(into[i]));
             }
         }
-        
+    }
+    
+    /**
+     * Iterates over the Matchdates in order. On a lazy Fixture each
+     * Matchdate is built when it's reached, so only one of them needs to be
+     * in memory at a time.
+     * @return iterator over the Matchdates
+     */
+    @Override
+    public Iterator<Matchdate> iterator() {
+        return new Iterator<Matchdate>() {
+            private int next = 1;
+            
+            @Override
+            public boolean hasNext() {
+                return next <= getMatchdateCount();
+            }
+            
+            @Override
+            public Matchdate next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return matchdate(next++);
+            }
+        };
+    }
+    
+    /**
+     * Sequential stream of the Matchdates in order, built on demand just
+     * like iterator().
+     * @return stream of Matchdates
+     */
+    public Stream<Matchdate> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(),
+                getMatchdateCount(),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
     
     /**
      * Show the matrix, just in case.
      */
     public void printMatrix() {
-        for (Integer[] matrix1 : matrix) {
-            for (int c = 0; c < matrix.length; c++) {
-                System.out.print(matrix1[c] + "  ");
+        int m = matrix.size();
+        for (int f = 0; f < m; f++) {
+            for (int c = 0; c < m; c++) {
+                System.out.print(matrix.get(f, c) + "  ");
             }
             System.out.println();
         }
@@ -320,22 +1122,18 @@ public class Fixture {
      */
     @Override
     public String toString() {
-        
-        StringBuilder x = new StringBuilder();
-        
-        for (Matchdate date : dates) {
-            x.append(date);
-            x.append(System.getProperty("line.separator"));
-        }
-        
-        return x.toString();
+        return FixtureWriter.render(this);
     }
     
     /**
      * Displays the Fixture.
      */
     public void display () {
-        System.out.println(this);
+        try {
+            new FixtureWriter(System.out).write(this).newLine().flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // a PrintStream never throws
+        }
     }
     
 }
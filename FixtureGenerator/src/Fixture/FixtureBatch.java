@@ -0,0 +1,150 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates the Fixtures of many independent tournaments (e.g. every
+ * division of a league) concurrently.
+ * Every tournament gets its own seed, derived from the seed of the batch and
+ * its position in the batch, so the results don't depend on how the tasks
+ * are scheduled: the same teams, options and batch seed always give the same
+ * Fixtures.
+ * Each Fixture is built entirely by one task and handed over as a
+ * FixtureView, which only has the methods that read it: it can't be
+ * shuffled or changed any more, so it can be read (toString(),
+ * matchdate(k), iterator(), ...) from any amount of threads. toFixture()
+ * gives a Fixture of one's own to change.
+ * @author Haiko
+ */
+public class FixtureBatch {
+
+    /**
+     * Options shared by every Fixture of the batch.
+     */
+    private final FixtureOptions options;
+    /**
+     * Executor that runs the tasks.
+     */
+    private final Executor executor;
+    /**
+     * Amount of tasks created per available core.
+     */
+    private static final int TASKS_PER_CORE = 4;
+
+    /**
+     * Constructor
+     * @param options options of every Fixture
+     * @param executor executor that runs the tasks (e.g. a ForkJoinPool or
+     * an executor of virtual threads)
+     */
+    public FixtureBatch (FixtureOptions options, Executor executor) {
+        this.options = options;
+        this.executor = executor;
+    }
+
+    /**
+     * Constructor that runs the tasks on the common ForkJoinPool.
+     * @param options options of every Fixture
+     */
+    public FixtureBatch (FixtureOptions options) {
+        this(options, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Seeds of the Fixtures of a batch, one per tournament.
+     * @param seed seed of the batch
+     * @param count amount of tournaments
+     * @return seed of each tournament, in order
+     */
+    public static long[] seeds (long seed, int count) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] seeds = new long[count];
+        for (int i = 0; i < count; i++) {
+            seeds[i] = random.nextLong();
+        }
+        return seeds;
+    }
+
+    /**
+     * Generates the Fixture of every tournament concurrently.
+     * @param tournaments team lists, one per tournament
+     * @param seed seed of the batch
+     * @return future completed with the Fixtures (an unmodifiable list), in
+     * the same order as the team lists
+     */
+    public CompletableFuture<List<FixtureView>> generate (Collection<String[]> tournaments,
+            long seed) {
+        final String[][] teams = tournaments.toArray(new String[0][]);
+        final long[] seeds = seeds(seed, teams.length);
+        final FixtureView[] fixtures = new FixtureView[teams.length];
+        /* a few tasks per core, each one building a range of tournaments,
+        so thousands of small tournaments don't mean thousands of tasks */
+        int tasks = Math.min(teams.length, TASKS_PER_CORE * Runtime.getRuntime().availableProcessors());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            final int from = (int) ((long) teams.length * i / tasks);
+            final int to = (int) ((long) teams.length * (i+1) / tasks);
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int t = from; t < to; t++) {
+                    fixtures[t] = build(teams[t], seeds[t]);
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> Collections.unmodifiableList(Arrays.asList(fixtures)));
+    }
+
+    /**
+     * Generates the Fixture of every tournament as a parallel stream (run on
+     * the common ForkJoinPool, not on the executor of the batch). The
+     * stream keeps the order of the team lists.
+     * @param tournaments team lists, one per tournament
+     * @param seed seed of the batch
+     * @return stream of Fixtures
+     */
+    public Stream<FixtureView> stream (Collection<String[]> tournaments, long seed) {
+        final String[][] teams = tournaments.toArray(new String[0][]);
+        final long[] seeds = seeds(seed, teams.length);
+        return IntStream.range(0, teams.length).parallel()
+                .mapToObj(i -> build(teams[i], seeds[i]));
+    }
+
+    /**
+     * Builds the Fixture of a tournament, wrapped so it can't change.
+     * @param teams
+     * @param seed seed of the tournament
+     * @return the Fixture
+     */
+    private FixtureView build (String[] teams, long seed) {
+        return new FixtureView(new Fixture(teams, options, seed), options);
+    }
+}
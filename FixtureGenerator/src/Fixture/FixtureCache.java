@@ -0,0 +1,291 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the Fixtures already built, so asking again for the same teams,
+ * options and seed gives back the same Fixture instead of building it
+ * again.
+ * - The key is the list of teams (in order), the FixtureOptions and the
+ *   seed; the arrays given are copied, so changing them later doesn't
+ *   change the key.
+ * - Each Fixture weighs about the bytes of its own state (see weigh()).
+ *   When the total weight goes over the maximum, the least recently used
+ *   Fixtures are dropped.
+ * - A Fixture is built only once, even if many threads ask for it at the
+ *   same time: the first one builds it, the others wait for it.
+ * - The matches themselves are not weighed: they live in the
+ *   RoundRobinTemplate shared by every Fixture of the same size, cached or
+ *   not.
+ * The Fixtures given are shared: they may be read from any thread, but
+ * nobody may randomize, generate or change them again.
+ * @author Haiko
+ */
+public class FixtureCache {
+
+    /**
+     * Key of a Fixture.
+     */
+    private static final class Key {
+        private final String[] teams;
+        private final FixtureOptions options;
+        private final long seed;
+        private final int hash;
+
+        Key(String[] teams, FixtureOptions options, long seed) {
+            this.teams = teams.clone();
+            this.options = Objects.requireNonNull(options);
+            this.seed = seed;
+            this.hash = 31 * (31 * Arrays.hashCode(this.teams) + options.hashCode())
+                    + Long.hashCode(seed);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key x = (Key) o;
+            return hash == x.hash && seed == x.seed && options.equals(x.options)
+                    && Arrays.equals(teams, x.teams);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A cached Fixture, or one being built.
+     */
+    private static final class Entry {
+        final CompletableFuture<Fixture> fixture = new CompletableFuture<>();
+        /**
+         * Weight, counted once it's built.
+         */
+        long weight;
+    }
+
+    /**
+     * Maximum total weight.
+     */
+    private final long maxWeight;
+    /**
+     * Cached Fixtures, least recently used first.
+     */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Total weight of the cached Fixtures.
+     */
+    private long weight;
+    /**
+     * Metrics.
+     */
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(),
+            evictions = new LongAdder();
+
+    /**
+     * Constructor
+     * @param maxWeight maximum weight kept, in bytes (the sum of weigh()
+     * over every cached Fixture)
+     */
+    public FixtureCache(long maxWeight) {
+        if (maxWeight < 0)
+            throw new IllegalArgumentException("Negative weight: " + maxWeight);
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Weight of a Fixture: about the bytes of what it holds on its own, its
+     * names and the slot, matchdate order and flip arrays. The shared
+     * template isn't counted, nor the season of every team (built only if
+     * asked for).
+     * @param fixture a generated Fixture
+     * @return the weight, at least 1
+     */
+    public static long weigh(Fixture fixture) {
+        TeamDictionary teams = fixture.getTeams();
+        long weight = 0;
+        for (int t = 0; t < teams.size(); t++) {
+            /* header, fields and chars of a String and its array */
+            weight += 56 + teams.name(t).length();
+        }
+        /* team on each slot */
+        weight += 4L * fixture.getMatchesPerMatchdate() * 2;
+        /* order and inverse order (ints) and flips (booleans) */
+        weight += 9L * fixture.getMatchdateCount();
+        return Math.max(1, weight);
+    }
+
+    /**
+     * Gets the Fixture of some teams, building it if it isn't cached. It's
+     * the same Fixture new Fixture(teams, options, seed) would build.
+     * @param teams names of the teams
+     * @param options
+     * @param seed
+     * @return the Fixture
+     */
+    public Fixture get(String[] teams, FixtureOptions options, long seed) {
+        Key key = new Key(teams, options, seed);
+        Entry entry;
+        boolean owner = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+        if (!owner) {
+            hits.increment();
+            try {
+                return entry.fixture.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ?
+                        (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        misses.increment();
+        Fixture fixture;
+        try {
+            fixture = new Fixture(key.teams, key.options, key.seed);
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            entry.fixture.completeExceptionally(e);
+            throw e;
+        }
+        entry.fixture.complete(fixture);
+        synchronized (this) {
+            if (entries.get(key) == entry) {
+                entry.weight = weigh(fixture);
+                weight += entry.weight;
+                evict();
+            }
+        }
+        return fixture;
+    }
+
+    /**
+     * Gets a Fixture only if it's cached and built.
+     * @param teams names of the teams
+     * @param options
+     * @param seed
+     * @return the Fixture, null if it isn't cached
+     */
+    public Fixture getIfPresent(String[] teams, FixtureOptions options, long seed) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(new Key(teams, options, seed));
+        }
+        if (entry == null || !entry.fixture.isDone() || entry.fixture.isCompletedExceptionally()) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.fixture.join();
+    }
+
+    /**
+     * Drops the least recently used Fixtures until the total weight is
+     * under the maximum. Fixtures still being built are kept. Must hold the
+     * lock.
+     */
+    private void evict() {
+        Iterator<Entry> i = entries.values().iterator();
+        while (weight > maxWeight && i.hasNext()) {
+            Entry entry = i.next();
+            if (!entry.fixture.isDone()) continue;
+            i.remove();
+            weight -= entry.weight;
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Drops every cached Fixture (the ones being built are still handed
+     * to whoever asked for them).
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * @return amount of Fixtures cached (or being built)
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return total weight of the cached Fixtures
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return maximum total weight
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * @return times a Fixture was found in the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return times a Fixture wasn't found in the cache
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return times a Fixture was dropped to make room
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return hits over requests, 0 if there weren't any
+     */
+    public double getHitRate() {
+        long h = getHits(), total = h + getMisses();
+        return total == 0 ? 0 : (double) h / total;
+    }
+}
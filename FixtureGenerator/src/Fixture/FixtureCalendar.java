@@ -0,0 +1,456 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Puts a Fixture on the calendar: each matchdate gets a date, and each match
+ * gets a kick-off time and a venue. Every venue holds at most a given amount
+ * of matches at the same time (its capacity).
+ * A match goes to the venue of its home team when that venue still has
+ * room on the date, otherwise to the first venue that has room (a neutral
+ * venue). The venues are walked in order and never walked back on the same
+ * date, because a full venue stays full. Each match is placed in O(1)
+ * amortized, whatever the amount of matches on a date.
+ * Like GroupStageFixture, the matches are stored in columnar arrays. Each
+ * venue keeps its matches sorted by kick-off, and one more index sorts every
+ * match. A query such as "every match at venue V this week" is then a
+ * binary search and a scan, O(log n + k).
+ * Every match lasts the same time, so a match overlaps [from, to) exactly
+ * when it kicks off after from - length and before to. Times are kept in
+ * minutes, with no time zone.
+ * The calendar is a snapshot: later changes to the Fixture (withdraw(),
+ * randomizeMatchdatesOrder()...) are not seen. The free team doesn't play,
+ * so it's not on the calendar.
+ * @author Haiko
+ */
+public final class FixtureCalendar {
+
+    /**
+     * A match on the calendar.
+     */
+    public static final class ScheduledMatch {
+
+        /**
+         * Number of the matchdate.
+         */
+        private final int matchdate;
+        /**
+         * Teams and venue.
+         */
+        private final String home, away, venue;
+        /**
+         * Kick-off and end.
+         */
+        private final LocalDateTime start, end;
+
+        /**
+         * Constructor
+         * @param matchdate number of the matchdate
+         * @param home home team
+         * @param away away team
+         * @param venue where it's played
+         * @param start kick-off
+         * @param end when it ends
+         */
+        private ScheduledMatch (int matchdate, String home, String away, String venue,
+                LocalDateTime start, LocalDateTime end) {
+            this.matchdate = matchdate;
+            this.home = home;
+            this.away = away;
+            this.venue = venue;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return number of the matchdate
+         */
+        public int getMatchdate () {
+            return matchdate;
+        }
+
+        /**
+         * @return home team
+         */
+        public String getHome () {
+            return home;
+        }
+
+        /**
+         * @return away team
+         */
+        public String getAway () {
+            return away;
+        }
+
+        /**
+         * @return where it's played
+         */
+        public String getVenue () {
+            return venue;
+        }
+
+        /**
+         * @return kick-off
+         */
+        public LocalDateTime getStart () {
+            return start;
+        }
+
+        /**
+         * @return when it ends
+         */
+        public LocalDateTime getEnd () {
+            return end;
+        }
+
+        /**
+         * Example: 2026-10-17T15:00 Stadium: England  vs.  Germany
+         * @return
+         */
+        @Override
+        public String toString () {
+            return start + " " + venue + ": " + home + "  vs.  " + away;
+        }
+    }
+
+    /**
+     * Minutes in a day.
+     */
+    private static final int DAY = 24 * 60;
+
+    /**
+     * Teams of the Fixture.
+     */
+    private final TeamDictionary teams;
+    /**
+     * Date of each matchdate (index k-1).
+     */
+    private final LocalDate[] dates;
+    /**
+     * Names of the venues.
+     */
+    private final String[] venues;
+    /**
+     * Id of each venue.
+     */
+    private final Map<String, Integer> venueIds;
+    /**
+     * How long a match lasts, in minutes.
+     */
+    private final int length;
+    /**
+     * Matchdate of each match.
+     */
+    private final int[] matchdate;
+    /**
+     * Home team of each match.
+     */
+    private final int[] home;
+    /**
+     * Away team of each match.
+     */
+    private final int[] away;
+    /**
+     * Venue of each match.
+     */
+    private final int[] venue;
+    /**
+     * Kick-off of each match, in minutes since 1970-01-01.
+     */
+    private final long[] start;
+    /**
+     * Matches of each venue, sorted by kick-off.
+     */
+    private final int[][] byVenue;
+    /**
+     * Every match, sorted by kick-off.
+     */
+    private final int[] byStart;
+
+    /**
+     * Constructor
+     * @param fixture a generated Fixture
+     * @param dates date of each matchdate, strictly increasing, at least
+     * getMatchdateCount() of them (see dates())
+     * @param kickOffs kick-off times of a date, strictly increasing
+     * @param length how long a match lasts (at least a minute, at most the
+     * time between two kick-offs so the matches of a venue don't overlap)
+     * @param venues names of the venues
+     * @param capacity matches each venue holds at the same time
+     * @param homeVenues venue of each team that has one (others always play
+     * at neutral venues)
+     * @throws IllegalArgumentException if an argument doesn't fit the
+     * description above, or a team or a venue is unknown
+     * @throws IllegalStateException if the venues of a date have no room for
+     * all its matches
+     */
+    public FixtureCalendar (Fixture fixture, List<LocalDate> dates, List<LocalTime> kickOffs,
+            Duration length, String[] venues, int[] capacity, Map<String, String> homeVenues) {
+        this.teams = fixture.getTeams();
+        int count = fixture.getMatchdateCount();
+        if (dates.size() < count)
+            throw new IllegalArgumentException(dates.size() + " dates for " + count + " matchdates");
+        this.dates = dates.subList(0, count).toArray(new LocalDate[0]);
+        for (int k = 1; k < count; k++) {
+            if (!this.dates[k].isAfter(this.dates[k-1]))
+                throw new IllegalArgumentException("Dates not in order: " + this.dates[k]);
+        }
+        if (kickOffs.isEmpty())
+            throw new IllegalArgumentException("No kick-off times");
+        int[] times = new int[kickOffs.size()];
+        for (int s = 0; s < times.length; s++) {
+            times[s] = kickOffs.get(s).getHour() * 60 + kickOffs.get(s).getMinute();
+            if (s > 0 && times[s] <= times[s-1])
+                throw new IllegalArgumentException("Kick-off times not in order: " + kickOffs.get(s));
+        }
+        this.length = (int) length.toMinutes();
+        if (this.length < 1)
+            throw new IllegalArgumentException("Too short: " + length);
+        for (int s = 1; s < times.length; s++) {
+            if (times[s] - times[s-1] < this.length)
+                throw new IllegalArgumentException("Too long for the kick-off times: " + length);
+        }
+        if (venues.length != capacity.length)
+            throw new IllegalArgumentException(venues.length + " venues, " + capacity.length
+                    + " capacities");
+        this.venues = venues.clone();
+        this.venueIds = new HashMap<>(venues.length * 2);
+        for (int v = 0; v < venues.length; v++) {
+            if (capacity[v] < 1)
+                throw new IllegalArgumentException("No capacity: " + venues[v]);
+            if (venueIds.put(venues[v], v) != null)
+                throw new IllegalArgumentException("Venue twice: " + venues[v]);
+        }
+        int[] teamVenue = new int[teams.size()];
+        Arrays.fill(teamVenue, -1);
+        for (Map.Entry<String, String> e : homeVenues.entrySet()) {
+            int t = teams.idOf(e.getKey());
+            if (t == TeamDictionary.FREE)
+                throw new IllegalArgumentException("No such team: " + e.getKey());
+            teamVenue[t] = venueOf(e.getValue());
+        }
+
+        /* every match kicks off in the first slot of its venue with room */
+        int half = fixture.getMatchesPerMatchdate();
+        int n = count * half;
+        int[] matchdate = new int[n], home = new int[n], away = new int[n], venue = new int[n];
+        long[] start = new long[n];
+        int[] used = new int[venues.length];
+        int[] usedOn = new int[venues.length];
+        int[] venueCount = new int[venues.length];
+        int[][] byVenue = new int[venues.length][];
+        for (int v = 0; v < venues.length; v++) byVenue[v] = new int[16];
+        long[] round = new long[half];
+        int i = 0, h, a, v, neutral;
+        for (int k = 1; k <= count; k++) {
+            fixture.pairs(k, round);
+            long day = this.dates[k-1].toEpochDay() * DAY;
+            neutral = 0;
+            for (long pair : round) {
+                h = fixture.teamAt(Match.home(pair), k);
+                a = fixture.teamAt(Match.away(pair), k);
+                if (h == TeamDictionary.FREE || a == TeamDictionary.FREE) continue;
+                v = teamVenue[h];
+                if (v < 0 || full(v, k, used, usedOn, capacity, times.length)) {
+                    while (neutral < venues.length
+                            && full(neutral, k, used, usedOn, capacity, times.length)) neutral++;
+                    if (neutral == venues.length)
+                        throw new IllegalStateException("No room for every match on "
+                                + this.dates[k-1]);
+                    v = neutral;
+                }
+                matchdate[i] = k;
+                home[i] = h;
+                away[i] = a;
+                venue[i] = v;
+                start[i] = day + times[used[v]++ / capacity[v]];
+                if (venueCount[v] == byVenue[v].length)
+                    byVenue[v] = Arrays.copyOf(byVenue[v], venueCount[v] * 2);
+                byVenue[v][venueCount[v]++] = i++;
+            }
+        }
+        this.matchdate = Arrays.copyOf(matchdate, i);
+        this.home = Arrays.copyOf(home, i);
+        this.away = Arrays.copyOf(away, i);
+        this.venue = Arrays.copyOf(venue, i);
+        this.start = Arrays.copyOf(start, i);
+        /* the matches of a venue were added in order: a later date, or a
+        later slot of the same date */
+        for (v = 0; v < venues.length; v++) byVenue[v] = Arrays.copyOf(byVenue[v], venueCount[v]);
+        this.byVenue = byVenue;
+        long[] keys = new long[i];
+        for (int j = 0; j < i; j++) keys[j] = this.start[j] << 32 | j;
+        Arrays.sort(keys);
+        this.byStart = new int[i];
+        for (int j = 0; j < i; j++) byStart[j] = (int) keys[j];
+    }
+
+    /**
+     * Tells if a venue has no room left on a matchdate; the first time it's
+     * asked on a matchdate its count starts again.
+     * @param v id of the venue
+     * @param k number of the matchdate
+     * @param used matches of each venue on usedOn
+     * @param usedOn matchdate the count of each venue belongs to
+     * @param capacity
+     * @param slots amount of kick-off times
+     * @return true if it's full
+     */
+    private static boolean full (int v, int k, int[] used, int[] usedOn, int[] capacity,
+            int slots) {
+        if (usedOn[v] != k) {
+            usedOn[v] = k;
+            used[v] = 0;
+        }
+        return used[v] >= capacity[v] * slots;
+    }
+
+    /**
+     * Dates at a regular step (e.g. every weekend), skipping some of them.
+     * @param first first date
+     * @param step time between two dates, e.g. Period.ofWeeks(1)
+     * @param count amount of dates
+     * @param skipped dates without matches (e.g. holidays), none if null
+     * @return the dates
+     */
+    public static List<LocalDate> dates (LocalDate first, Period step, int count,
+            Set<LocalDate> skipped) {
+        if (step.isZero() || step.isNegative())
+            throw new IllegalArgumentException("Not a step: " + step);
+        List<LocalDate> dates = new ArrayList<>(count);
+        for (LocalDate d = first; dates.size() < count; d = d.plus(step)) {
+            if (skipped == null || !skipped.contains(d)) dates.add(d);
+        }
+        return dates;
+    }
+
+    /**
+     * Id of a venue.
+     * @param name
+     * @return the id
+     * @throws IllegalArgumentException if there's no such venue
+     */
+    private int venueOf (String name) {
+        Integer v = venueIds.get(name);
+        if (v == null)
+            throw new IllegalArgumentException("No such venue: " + name);
+        return v;
+    }
+
+    /**
+     * Date of a matchdate.
+     * @param k number of the matchdate
+     * @return the date
+     */
+    public LocalDate getDate (int k) {
+        if (k < 1 || k > dates.length)
+            throw new IllegalArgumentException("No such matchdate: " + k);
+        return dates[k-1];
+    }
+
+    /**
+     * @return amount of matches on the calendar
+     */
+    public int getMatchCount () {
+        return start.length;
+    }
+
+    /**
+     * A match, by its position (matchdate after matchdate).
+     * @param i position, from 0 to getMatchCount()-1
+     * @return the match
+     */
+    public ScheduledMatch match (int i) {
+        long t = start[i];
+        LocalDateTime s = LocalDate.ofEpochDay(Math.floorDiv(t, DAY)).atStartOfDay()
+                .plusMinutes(Math.floorMod(t, DAY));
+        return new ScheduledMatch(matchdate[i], teams.name(home[i]), teams.name(away[i]),
+                venues[venue[i]], s, s.plusMinutes(length));
+    }
+
+    /**
+     * Matches at a venue that overlap a time, sorted by kick-off.
+     * @param venue name of the venue
+     * @param from start of the time
+     * @param to end of the time (excluded)
+     * @return the matches
+     * @throws IllegalArgumentException if there's no such venue
+     */
+    public List<ScheduledMatch> matchesAt (String venue, LocalDateTime from, LocalDateTime to) {
+        return find(byVenue[venueOf(venue)], from, to);
+    }
+
+    /**
+     * Matches at every venue that overlap a time, sorted by kick-off.
+     * @param from start of the time
+     * @param to end of the time (excluded)
+     * @return the matches
+     */
+    public List<ScheduledMatch> matchesBetween (LocalDateTime from, LocalDateTime to) {
+        return find(byStart, from, to);
+    }
+
+    /**
+     * Matches of an index that overlap a time: a binary search for the
+     * first one that ends after from, then every one that kicks off before
+     * to.
+     * @param index matches sorted by kick-off
+     * @param from
+     * @param to
+     * @return the matches
+     */
+    private List<ScheduledMatch> find (int[] index, LocalDateTime from, LocalDateTime to) {
+        long lo = minutes(from) - length, hi = minutes(to);
+        if (hi <= lo + length) return Collections.emptyList();
+        int first = 0, last = index.length;
+        while (first < last) {
+            int mid = (first + last) >>> 1;
+            if (start[index[mid]] <= lo) first = mid + 1;
+            else last = mid;
+        }
+        List<ScheduledMatch> found = new ArrayList<>();
+        for (int j = first; j < index.length && start[index[j]] < hi; j++) {
+            found.add(match(index[j]));
+        }
+        return found;
+    }
+
+    /**
+     * @param t a date and time
+     * @return minutes since 1970-01-01 (seconds are dropped)
+     */
+    private static long minutes (LocalDateTime t) {
+        return t.toLocalDate().toEpochDay() * DAY + t.getHour() * 60 + t.getMinute();
+    }
+}
@@ -0,0 +1,625 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the matches of a Fixture (or of any Matchdates, e.g. the rounds
+ * of a SwissFixture) for other programs, one row per match with the
+ * matchdate, the home team and the away team. A free team is a row of its
+ * own with no away team. Formats:
+ * - CSV: a header line "matchdate,home,away", then one line per match; the
+ *   away field of a free team is empty, names are quoted when needed
+ * - JSON_LINES: one object per line, {"matchdate":1,"home":"A","away":"B"};
+ *   the away team of a free team is null
+ * - COLUMNAR: a binary file made of row groups, see below
+ * The matches are walked only once. Every name is encoded once (to UTF-8,
+ * escaped for the format) and each row is copied from those bytes into one
+ * reusable buffer, so no String is created per match and a lazy Fixture is
+ * exported one matchdate at a time, in a fixed amount of memory.
+ * Columnar layout (big-endian, like BinaryFixtureWriter), similar to
+ * Parquet:
+ * - header (HEADER bytes): magic, version, flags (bit 0: two rounds)
+ * - row groups, each one holding whole matchdates and about ROW_GROUP
+ *   matches: amount of matchdates d and of rows r, then the matchdate
+ *   column (d pairs of number and amount of rows), the home column (r team
+ *   ids) and the away column (r team ids, FREE for a free team)
+ * - footer: the dictionary (amount of teams, then each name as its length
+ *   and its UTF-8 bytes), the amount of row groups and, for each one, its
+ *   offset, matchdates and rows; then the length of the footer and the magic
+ *   again. A reader starts from the end of the file.
+ * Every format can be compressed with gzip; then the offsets are those of
+ * the uncompressed bytes.
+ * @author Haiko
+ */
+public class FixtureExporter {
+
+    /**
+     * Formats of the exported file.
+     */
+    public enum Format {
+        /**
+         * Comma-separated values with a header line.
+         */
+        CSV,
+        /**
+         * One JSON object per line.
+         */
+        JSON_LINES,
+        /**
+         * Binary row groups of columns, see FixtureExporter.
+         */
+        COLUMNAR
+    }
+
+    /**
+     * First and last bytes of a columnar file ("FXCL").
+     */
+    static final int MAGIC = 0x4658434C;
+    /**
+     * Version of the columnar format.
+     */
+    static final short VERSION = 1;
+    /**
+     * Size of the header of a columnar file, in bytes.
+     */
+    static final int HEADER = 16;
+    /**
+     * Matches of a row group, a row group ends with the first matchdate
+     * that reaches them.
+     */
+    static final int ROW_GROUP = 1 << 20;
+    /**
+     * Default size of the buffer, in bytes.
+     */
+    private static final int DEFAULT_BUFFER = 1 << 16;
+
+    /**
+     * First line of a CSV file.
+     */
+    private static final byte[] CSV_HEADER = bytes("matchdate,home,away\n");
+    /**
+     * Parts of a JSON line after the home team.
+     */
+    private static final byte[] JSON_AWAY = bytes(",\"away\":"),
+            JSON_NULL = bytes("null"), JSON_END = bytes("}\n");
+
+    /**
+     * Target of the bytes, null when writing to a stream.
+     */
+    private final WritableByteChannel channel;
+    /**
+     * Target of the bytes, null when writing to a channel.
+     */
+    private final OutputStream out;
+    /**
+     * Format of the rows.
+     */
+    private final Format format;
+    /**
+     * Reusable buffer of the bytes not yet written.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * Bytes moved from the buffer to the target so far.
+     */
+    private long written;
+
+    /**
+     * Names of the teams, encoded for the format, by id.
+     */
+    private byte[][] names;
+    /**
+     * Amount of names.
+     */
+    private int nameCount;
+    /**
+     * Start of every row of the current matchdate.
+     */
+    private byte[] prefix;
+    /**
+     * Where the current file started (value of written plus position).
+     */
+    private long start;
+    /**
+     * Columns of the current row group (columnar only).
+     */
+    private int[] homes, aways, numbers, counts;
+    /**
+     * Rows and matchdates of the current row group, and rows of the current
+     * matchdate.
+     */
+    private int rows, dates, dateRows;
+    /**
+     * Offset, matchdates and rows of each row group written.
+     */
+    private long[] groups;
+    /**
+     * Amount of row groups written.
+     */
+    private int groupCount;
+
+    /**
+     * Constructor
+     * @param channel target of the bytes
+     * @param format format of the file
+     * @param bufferSize size of the buffer, in bytes
+     */
+    public FixtureExporter (WritableByteChannel channel, Format format, int bufferSize) {
+        this(channel, null, format, bufferSize);
+    }
+
+    /**
+     * Constructor with the default buffer size.
+     * @param channel target of the bytes
+     * @param format format of the file
+     */
+    public FixtureExporter (WritableByteChannel channel, Format format) {
+        this(channel, null, format, DEFAULT_BUFFER);
+    }
+
+    /**
+     * Constructor, e.g. for a GZIPOutputStream: the buffer is written to it
+     * without any copy.
+     * @param out target of the bytes
+     * @param format format of the file
+     * @param bufferSize size of the buffer, in bytes
+     */
+    public FixtureExporter (OutputStream out, Format format, int bufferSize) {
+        this(null, out, format, bufferSize);
+    }
+
+    /**
+     * Constructor
+     * @param channel target of the bytes, or null
+     * @param out target of the bytes, or null
+     * @param format format of the file
+     * @param bufferSize size of the buffer, in bytes
+     */
+    private FixtureExporter (WritableByteChannel channel, OutputStream out, Format format,
+            int bufferSize) {
+        if (bufferSize < HEADER)
+            throw new IllegalArgumentException("Buffer too small: " + bufferSize);
+        this.channel = channel;
+        this.out = out;
+        this.format = format;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Exports a Fixture to a file, replacing it if it exists.
+     * @param fixture a generated Fixture
+     * @param path
+     * @param format format of the file
+     * @param gzip true to compress the file with gzip
+     * @throws IOException
+     */
+    public static void export (Fixture fixture, Path path, Format format, boolean gzip)
+            throws IOException {
+        try (FileChannel channel = open(path)) {
+            if (gzip) {
+                try (GZIPOutputStream out = gzip(channel)) {
+                    new FixtureExporter(out, format, DEFAULT_BUFFER).write(fixture);
+                }
+            } else {
+                new FixtureExporter(channel, format).write(fixture);
+            }
+        }
+    }
+
+    /**
+     * Exports some Matchdates to a file, replacing it if it exists.
+     * @param dates e.g. the rounds of a SwissFixture or a KnockoutFixture
+     * @param path
+     * @param format format of the file
+     * @param gzip true to compress the file with gzip
+     * @throws IOException
+     */
+    public static void export (Iterable<Matchdate> dates, Path path, Format format, boolean gzip)
+            throws IOException {
+        try (FileChannel channel = open(path)) {
+            if (gzip) {
+                try (GZIPOutputStream out = gzip(channel)) {
+                    new FixtureExporter(out, format, DEFAULT_BUFFER).write(dates);
+                }
+            } else {
+                new FixtureExporter(channel, format).write(dates);
+            }
+        }
+    }
+
+    /**
+     * Opens a file to export to.
+     * @param path
+     * @return the channel
+     * @throws IOException
+     */
+    private static FileChannel open (Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Compresses what's written to a channel.
+     * @param channel
+     * @return the stream to write to
+     * @throws IOException
+     */
+    private static GZIPOutputStream gzip (FileChannel channel) throws IOException {
+        return new GZIPOutputStream(Channels.newOutputStream(channel), DEFAULT_BUFFER);
+    }
+
+    /**
+     * Writes every match of a Fixture as a whole file. The matches are read
+     * straight from the Fixture (team ids), no Matchdate or Match is
+     * created. The Fixture must have been generated.
+     * @param fixture
+     * @throws IOException
+     */
+    public void write (Fixture fixture) throws IOException {
+        Probe probe = Probe.start(FixtureListener.Phase.EXPORT);
+        TeamDictionary teams = fixture.getTeams();
+        begin(fixture.isRound(), teams.size());
+        for (int t = 0; t < teams.size(); t++) {
+            name(teams.name(t));
+        }
+        long[] round = new long[fixture.getMatchesPerMatchdate()];
+        int home, away;
+        for (int k = 1; k <= fixture.getMatchdateCount(); k++) {
+            fixture.pairs(k, round);
+            startMatchdate(k);
+            for (long pair : round) {
+                home = fixture.teamAt(Match.home(pair), k);
+                away = fixture.teamAt(Match.away(pair), k);
+                if (home == TeamDictionary.FREE) {
+                    /* the free team is on the away side */
+                    home = away;
+                    away = TeamDictionary.FREE;
+                }
+                if (home != TeamDictionary.FREE) row(home, away);
+            }
+            endMatchdate(k);
+        }
+        end();
+        if (probe != null)
+            probe.end(fixture.getMatchesPerMatchdate() * 2, written + buffer.position() - start);
+    }
+
+    /**
+     * Writes every Match of some Matchdates as a whole file, in the order
+     * they're given.
+     * @param dates e.g. the rounds of a SwissFixture or a KnockoutFixture
+     * @throws IOException
+     */
+    public void write (Iterable<Matchdate> dates) throws IOException {
+        begin(false, 16);
+        Map<String, Integer> ids = new HashMap<>();
+        for (Matchdate date : dates) {
+            startMatchdate(date.number);
+            for (Match m : date.matches) {
+                int home = idOf(ids, m.getHome());
+                row(home, m.getAway() == null ? TeamDictionary.FREE : idOf(ids, m.getAway()));
+            }
+            endMatchdate(date.number);
+        }
+        end();
+    }
+
+    /**
+     * Id of a team, added to the names the first time it's seen.
+     * @param ids id of every name seen
+     * @param name
+     * @return the id
+     */
+    private int idOf (Map<String, Integer> ids, String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = nameCount;
+            ids.put(name, id);
+            name(name);
+        }
+        return id;
+    }
+
+    /**
+     * Starts a file.
+     * @param round true if the matches are of two rounds
+     * @param teams expected amount of teams
+     * @throws IOException
+     */
+    private void begin (boolean round, int teams) throws IOException {
+        start = written + buffer.position();
+        names = new byte[Math.max(teams, 1)][];
+        nameCount = 0;
+        switch (format) {
+            case CSV:
+                put(CSV_HEADER);
+                break;
+            case JSON_LINES:
+                break;
+            case COLUMNAR:
+                ensure(HEADER);
+                buffer.putInt(MAGIC);
+                buffer.putShort(VERSION);
+                buffer.putShort((short) (round ? 1 : 0));
+                buffer.putLong(0);
+                homes = new int[16];
+                aways = new int[16];
+                numbers = new int[16];
+                counts = new int[16];
+                groups = new long[12];
+                rows = dates = groupCount = 0;
+                break;
+        }
+    }
+
+    /**
+     * Adds the name of the next team.
+     * @param name
+     */
+    private void name (String name) {
+        if (nameCount == names.length) names = Arrays.copyOf(names, nameCount * 2);
+        switch (format) {
+            case CSV: names[nameCount++] = bytes(csv(name)); break;
+            case JSON_LINES: names[nameCount++] = bytes(json(name)); break;
+            default: names[nameCount++] = bytes(name); break;
+        }
+    }
+
+    /**
+     * Starts the rows of a matchdate: the number is encoded only once.
+     * @param k number of the matchdate
+     */
+    private void startMatchdate (int k) {
+        switch (format) {
+            case CSV: prefix = bytes(k + ","); break;
+            case JSON_LINES: prefix = bytes("{\"matchdate\":" + k + ",\"home\":"); break;
+            default: dateRows = 0; break;
+        }
+    }
+
+    /**
+     * Writes a row.
+     * @param home id of the home team
+     * @param away id of the away team, FREE if home is free
+     * @throws IOException
+     */
+    private void row (int home, int away) throws IOException {
+        switch (format) {
+            case CSV:
+                put(prefix);
+                put(names[home]);
+                ensure(1);
+                buffer.put((byte) ',');
+                if (away != TeamDictionary.FREE) put(names[away]);
+                ensure(1);
+                buffer.put((byte) '\n');
+                break;
+            case JSON_LINES:
+                put(prefix);
+                put(names[home]);
+                put(JSON_AWAY);
+                put(away == TeamDictionary.FREE ? JSON_NULL : names[away]);
+                put(JSON_END);
+                break;
+            case COLUMNAR:
+                if (rows == homes.length) {
+                    homes = Arrays.copyOf(homes, rows * 2);
+                    aways = Arrays.copyOf(aways, rows * 2);
+                }
+                homes[rows] = home;
+                aways[rows++] = away;
+                dateRows++;
+                break;
+        }
+    }
+
+    /**
+     * Ends the rows of a matchdate; a row group is written once it's big
+     * enough.
+     * @param k number of the matchdate
+     * @throws IOException
+     */
+    private void endMatchdate (int k) throws IOException {
+        if (format != Format.COLUMNAR) return;
+        if (dates == numbers.length) {
+            numbers = Arrays.copyOf(numbers, dates * 2);
+            counts = Arrays.copyOf(counts, dates * 2);
+        }
+        numbers[dates] = k;
+        counts[dates++] = dateRows;
+        if (rows >= ROW_GROUP) writeGroup();
+    }
+
+    /**
+     * Writes the current row group and empties it.
+     * @throws IOException
+     */
+    private void writeGroup () throws IOException {
+        if (groupCount * 3 == groups.length) groups = Arrays.copyOf(groups, groups.length * 2);
+        groups[groupCount * 3] = written + buffer.position() - start;
+        groups[groupCount * 3 + 1] = dates;
+        groups[groupCount * 3 + 2] = rows;
+        groupCount++;
+        putInt(dates);
+        putInt(rows);
+        for (int i = 0; i < dates; i++) {
+            putInt(numbers[i]);
+            putInt(counts[i]);
+        }
+        putInts(homes, rows);
+        putInts(aways, rows);
+        rows = dates = 0;
+    }
+
+    /**
+     * Ends a file: the last row group and the footer of a columnar file,
+     * then everything still buffered.
+     * @throws IOException
+     */
+    private void end () throws IOException {
+        if (format == Format.COLUMNAR) {
+            if (dates > 0) writeGroup();
+            long footer = written + buffer.position();
+            putInt(nameCount);
+            for (int i = 0; i < nameCount; i++) {
+                putInt(names[i].length);
+                put(names[i]);
+            }
+            putInt(groupCount);
+            for (int g = 0; g < groupCount; g++) {
+                ensure(16);
+                buffer.putLong(groups[g * 3]);
+                buffer.putInt((int) groups[g * 3 + 1]);
+                buffer.putInt((int) groups[g * 3 + 2]);
+            }
+            putInt((int) (written + buffer.position() - footer));
+            putInt(MAGIC);
+            homes = aways = numbers = counts = null;
+        }
+        names = null;
+        drain();
+    }
+
+    /**
+     * A name as a CSV field: quoted (with its quotes doubled) if it has a
+     * comma, a quote or a line break.
+     * @param name
+     * @return the field
+     */
+    static String csv (String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r')
+                return '"' + name.replace("\"", "\"\"") + '"';
+        }
+        return name;
+    }
+
+    /**
+     * A name as a JSON string, with its quotes.
+     * @param name
+     * @return the string
+     */
+    static String json (String name) {
+        StringBuilder s = new StringBuilder(name.length() + 2).append('"');
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '"' || c == '\\') s.append('\\').append(c);
+            else if (c == '\n') s.append("\\n");
+            else if (c == '\r') s.append("\\r");
+            else if (c == '\t') s.append("\\t");
+            else if (c < 0x20) s.append(String.format("\\u%04x", (int) c));
+            else s.append(c);
+        }
+        return s.append('"').toString();
+    }
+
+    /**
+     * @param s
+     * @return s in UTF-8
+     */
+    private static byte[] bytes (String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Adds some bytes to the buffer.
+     * @param b
+     * @throws IOException
+     */
+    private void put (byte[] b) throws IOException {
+        if (buffer.remaining() >= b.length) {
+            buffer.put(b);
+            return;
+        }
+        for (int i = 0; i < b.length; ) {
+            ensure(1);
+            int chunk = Math.min(buffer.remaining(), b.length - i);
+            buffer.put(b, i, chunk);
+            i += chunk;
+        }
+    }
+
+    /**
+     * Adds an int to the buffer.
+     * @param i
+     * @throws IOException
+     */
+    private void putInt (int i) throws IOException {
+        ensure(4);
+        buffer.putInt(i);
+    }
+
+    /**
+     * Adds the first ints of an array to the buffer, as many at once as fit.
+     * @param a
+     * @param length amount of ints
+     * @throws IOException
+     */
+    private void putInts (int[] a, int length) throws IOException {
+        for (int i = 0; i < length; ) {
+            ensure(4);
+            int chunk = Math.min(buffer.remaining() >>> 2, length - i);
+            buffer.asIntBuffer().put(a, i, chunk);
+            buffer.position(buffer.position() + chunk * 4);
+            i += chunk;
+        }
+    }
+
+    /**
+     * Makes room in the buffer.
+     * @param bytes bytes needed
+     * @throws IOException
+     */
+    private void ensure (int bytes) throws IOException {
+        if (buffer.remaining() < bytes) drain();
+    }
+
+    /**
+     * Writes the buffer to the target and empties it.
+     * @throws IOException
+     */
+    private void drain () throws IOException {
+        buffer.flip();
+        written += buffer.limit();
+        if (out != null) {
+            out.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+        } else {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+/**
+ * Listener told about every phase of building and showing a Fixture, with
+ * how long it took and how much work it did. Listeners are added with
+ * FixtureMetrics.addListener(); while there's none (and the JFR event
+ * Fixture.Phase isn't recorded) nothing is timed or counted.
+ * Listeners are called from whatever thread ran the phase, right after it
+ * ended, so they must be thread-safe and fast.
+ * @author Haiko
+ */
+public interface FixtureListener {
+
+    /**
+     * Phases of building and showing a Fixture, and what their count means.
+     */
+    enum Phase {
+        /**
+         * Filling the matrix of a new RoundRobinTemplate (cells written, 0
+         * if the pattern isn't materialized).
+         */
+        MATRIX,
+        /**
+         * Building the matches of a leg of a RoundRobinTemplate (matches).
+         */
+        MATCHDATES,
+        /**
+         * Shuffling the teams (teams).
+         */
+        RANDOMIZE_TEAMS,
+        /**
+         * Shuffling the matchdates (matchdates).
+         */
+        RANDOMIZE_DATES,
+        /**
+         * Building a Matchdate (Match objects allocated).
+         */
+        MATCHDATE,
+        /**
+         * Building the season of every team (matches indexed).
+         */
+        INDEX,
+        /**
+         * Rendering a whole Fixture as text (bytes rendered: encoded, or
+         * in UTF-8 when the target takes chars).
+         */
+        RENDER,
+        /**
+         * Exporting a whole Fixture with FixtureExporter (bytes written,
+         * before compression).
+         */
+        EXPORT
+    }
+
+    /**
+     * A phase ended.
+     * @param phase the phase
+     * @param teams amount of slots of the Fixture (teams plus the free team)
+     * @param nanos time it took, in ns
+     * @param count work it did, see Phase
+     */
+    void phaseEnded(Phase phase, int teams, long nanos, long count);
+}
@@ -0,0 +1,156 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * FixtureListener that adds up, for each phase, how many times it ran, the
+ * time it took and the work it did, e.g.:
+ *     FixtureMetrics metrics = new FixtureMetrics();
+ *     FixtureMetrics.addListener(metrics);
+ *     ...
+ *     System.out.print(metrics);
+ * It also keeps the listeners every Fixture reports to (addListener(),
+ * removeListener()).
+ * @author Haiko
+ */
+public final class FixtureMetrics implements FixtureListener {
+
+    /**
+     * Every phase.
+     */
+    private static final Phase[] PHASES = Phase.values();
+
+    /**
+     * Times each phase ran, by ordinal.
+     */
+    private final LongAdder[] calls = adders();
+    /**
+     * Time each phase took, in ns, by ordinal.
+     */
+    private final LongAdder[] nanos = adders();
+    /**
+     * Work each phase did, by ordinal.
+     */
+    private final LongAdder[] counts = adders();
+
+    /**
+     * @return one adder per phase
+     */
+    private static LongAdder[] adders() {
+        LongAdder[] x = new LongAdder[PHASES.length];
+        for (int i = 0; i < x.length; i++) x[i] = new LongAdder();
+        return x;
+    }
+
+    /**
+     * Adds a listener every Fixture reports to.
+     * @param listener
+     */
+    public static synchronized void addListener(FixtureListener listener) {
+        FixtureListener[] x = Arrays.copyOf(Probe.listeners, Probe.listeners.length + 1);
+        x[x.length - 1] = listener;
+        Probe.listeners = x;
+    }
+
+    /**
+     * Removes a listener added with addListener().
+     * @param listener
+     * @return true if it was there
+     */
+    public static synchronized boolean removeListener(FixtureListener listener) {
+        FixtureListener[] x = Probe.listeners;
+        for (int i = 0; i < x.length; i++) {
+            if (x[i] == listener) {
+                FixtureListener[] y = new FixtureListener[x.length - 1];
+                System.arraycopy(x, 0, y, 0, i);
+                System.arraycopy(x, i + 1, y, i, x.length - i - 1);
+                Probe.listeners = y;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void phaseEnded(Phase phase, int teams, long nanos, long count) {
+        int i = phase.ordinal();
+        this.calls[i].increment();
+        this.nanos[i].add(nanos);
+        this.counts[i].add(count);
+    }
+
+    /**
+     * @param phase
+     * @return times the phase ran
+     */
+    public long getCalls(Phase phase) {
+        return calls[phase.ordinal()].sum();
+    }
+
+    /**
+     * @param phase
+     * @return time the phase took, in ns
+     */
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()].sum();
+    }
+
+    /**
+     * @param phase
+     * @return work the phase did, see Phase
+     */
+    public long getCount(Phase phase) {
+        return counts[phase.ordinal()].sum();
+    }
+
+    /**
+     * Sets every metric back to 0.
+     */
+    public void reset() {
+        for (int i = 0; i < PHASES.length; i++) {
+            calls[i].reset();
+            nanos[i].reset();
+            counts[i].reset();
+        }
+    }
+
+    /**
+     * Convert the known data to a string, one line per phase that ran.
+     * Example:
+     * MATRIX                1 calls      12.345 ms        10000 count
+     * @return
+     */
+    @Override
+    public String toString() {
+        StringBuilder x = new StringBuilder();
+        for (Phase phase : PHASES) {
+            long c = getCalls(phase);
+            if (c == 0) continue;
+            x.append(String.format(Locale.ROOT, "%-16s %8d calls %12.3f ms %14d count",
+                    phase, c, getNanos(phase) / 1e6, getCount(phase)));
+            x.append(FixtureWriter.LINE_SEPARATOR);
+        }
+        return x.toString();
+    }
+}
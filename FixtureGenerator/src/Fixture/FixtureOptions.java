@@ -0,0 +1,257 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.Objects;
+
+/**
+ * Options used to build a Fixture (everything but the teams and the seed).
+ * Instances are immutable, so the same options can be shared by any amount
+ * of Fixtures and threads.
+ * @author Haiko
+ */
+public final class FixtureOptions {
+
+    /**
+     * The string that will be used to denote a free team on a matchdate.
+     */
+    private final String freeDefault;
+    /**
+     * True if the tournament is two rounds, False if just one.
+     */
+    private final boolean round;
+    /**
+     * True if the team order should be randomized.
+     */
+    private final boolean randomTeams;
+    /**
+     * True if the matchdate order should be randomized.
+     */
+    private final boolean randomDates;
+    /**
+     * True if the fixture should be generated automatically.
+     */
+    private final boolean generate;
+    /**
+     * True if the whole matrix should be built.
+     */
+    private final boolean materialize;
+    /**
+     * True if each Matchdate should be built only when requested.
+     */
+    private final boolean lazy;
+    /**
+     * True if the matrix and the Matchdates should be built using every
+     * core.
+     */
+    private final boolean parallel;
+    /**
+     * True if the circle pattern, with the least possible breaks, should be
+     * used.
+     */
+    private final boolean minBreaks;
+
+    /**
+     * Full constructor, see the full constructor of Fixture.
+     * @param freeDefault
+     * @param round two rounds or just one
+     * @param randomTeams true if the team order should be randomized
+     * @param randomDates true if the matchdate order should be randomized
+     * @param generate true if the generation of the fixture should be
+     * automatic
+     * @param materialize true if the whole matrix should be built
+     * @param lazy true if each Matchdate should be built only when requested
+     * @param parallel true if a single Fixture should be built using every
+     * core (only worth it for very large amounts of teams, the result is the
+     * same either way)
+     * @param minBreaks true if the circle pattern (see CircleOracle) should
+     * be used: a single round has n-2 breaks, the least possible; with
+     * randomDates the matchdates are then only rotated, reversed or swapped
+     * by leg, which keeps the breaks (see Fixture.randomizeMatchdatesOrder())
+     */
+    public FixtureOptions (String freeDefault,
+            boolean round,
+            boolean randomTeams,
+            boolean randomDates,
+            boolean generate,
+            boolean materialize,
+            boolean lazy,
+            boolean parallel,
+            boolean minBreaks)
+    {
+        this.freeDefault = freeDefault;
+        this.round = round;
+        this.randomTeams = randomTeams;
+        this.randomDates = randomDates;
+        this.generate = generate;
+        this.materialize = materialize;
+        this.lazy = lazy;
+        this.parallel = parallel;
+        this.minBreaks = minBreaks;
+    }
+
+    /**
+     * Constructor with the usual pattern, otherwise same as full
+     * constructor.
+     * @param freeDefault
+     * @param round two rounds or just one
+     * @param randomTeams true if the team order should be randomized
+     * @param randomDates true if the matchdate order should be randomized
+     * @param generate true if the generation of the fixture should be
+     * automatic
+     * @param materialize true if the whole matrix should be built
+     * @param lazy true if each Matchdate should be built only when requested
+     * @param parallel true if a single Fixture should be built using every
+     * core
+     */
+    public FixtureOptions (String freeDefault,
+            boolean round,
+            boolean randomTeams,
+            boolean randomDates,
+            boolean generate,
+            boolean materialize,
+            boolean lazy,
+            boolean parallel)
+    {
+        this(freeDefault,round,randomTeams,randomDates,generate,materialize,lazy,parallel,false);
+    }
+
+    /**
+     * Sequential constructor, otherwise same as full constructor.
+     * @param freeDefault
+     * @param round two rounds or just one
+     * @param randomTeams true if the team order should be randomized
+     * @param randomDates true if the matchdate order should be randomized
+     * @param generate true if the generation of the fixture should be
+     * automatic
+     * @param materialize true if the whole matrix should be built
+     * @param lazy true if each Matchdate should be built only when requested
+     */
+    public FixtureOptions (String freeDefault,
+            boolean round,
+            boolean randomTeams,
+            boolean randomDates,
+            boolean generate,
+            boolean materialize,
+            boolean lazy)
+    {
+        this(freeDefault,round,randomTeams,randomDates,generate,materialize,lazy,false);
+    }
+
+    /**
+     * Constructor with freeDefault and round, everything is randomized,
+     * generated and materialized, just like new Fixture(teams, freeDefault,
+     * round) does.
+     * @param freeDefault
+     * @param round
+     */
+    public FixtureOptions (String freeDefault, boolean round) {
+        this(freeDefault,round,true,true,true,true,false);
+    }
+
+    /**
+     * Default options: "Free", two rounds, everything else true (except
+     * lazy).
+     */
+    public FixtureOptions () {
+        this("Free",true);
+    }
+
+    /**
+     * @return the string used to denote a free team
+     */
+    public String getFreeDefault() {
+        return freeDefault;
+    }
+
+    /**
+     * @return true if the tournament is two rounds
+     */
+    public boolean isRound() {
+        return round;
+    }
+
+    /**
+     * @return true if the team order is randomized
+     */
+    public boolean isRandomTeams() {
+        return randomTeams;
+    }
+
+    /**
+     * @return true if the matchdate order is randomized
+     */
+    public boolean isRandomDates() {
+        return randomDates;
+    }
+
+    /**
+     * @return true if the fixture is generated automatically
+     */
+    public boolean isGenerate() {
+        return generate;
+    }
+
+    /**
+     * @return true if the whole matrix is built
+     */
+    public boolean isMaterialize() {
+        return materialize;
+    }
+
+    /**
+     * @return true if each Matchdate is built only when requested
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * @return true if a single Fixture is built using every core
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * @return true if the circle pattern, with the least breaks, is used
+     */
+    public boolean isMinBreaks() {
+        return minBreaks;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FixtureOptions)) return false;
+        FixtureOptions x = (FixtureOptions) o;
+        return round == x.round && randomTeams == x.randomTeams
+                && randomDates == x.randomDates && generate == x.generate
+                && materialize == x.materialize && lazy == x.lazy
+                && parallel == x.parallel && minBreaks == x.minBreaks
+                && Objects.equals(freeDefault, x.freeDefault);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(freeDefault, round, randomTeams, randomDates,
+                generate, materialize, lazy, parallel, minBreaks);
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a phase of building or showing a Fixture (see
+ * FixtureListener.Phase). Enable it with
+ * -XX:StartFlightRecording:settings=... or in a Recording, e.g.
+ * recording.enable("Fixture.Phase").
+ * @author Haiko
+ */
+@Name("Fixture.Phase")
+@Label("Fixture Phase")
+@Category("Fixture")
+@Description("A phase of building or showing a Fixture")
+final class FixturePhaseEvent extends Event {
+
+    /**
+     * Name of the phase.
+     */
+    @Label("Phase")
+    String phase;
+
+    /**
+     * Amount of slots of the Fixture.
+     */
+    @Label("Teams")
+    int teams;
+
+    /**
+     * Work done, see FixtureListener.Phase.
+     */
+    @Label("Count")
+    long count;
+}
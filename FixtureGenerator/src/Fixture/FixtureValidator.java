@@ -0,0 +1,219 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that a generated Fixture is valid:
+ * - every slot (team, or the free team if the amount is odd) plays exactly
+ *   once on every matchdate, so there's exactly one bye per matchdate if
+ *   the amount of teams is odd and none otherwise
+ * - every pair of slots meets exactly once in a single round, and in a two
+ *   rounds tournament exactly once with each one at home; if the order of
+ *   the matchdates keeps the legs apart (each half of the season shows the
+ *   rounds of one leg: no randomDates, or the order minBreaks keeps), each
+ *   half must also be a whole single round, every pair meeting exactly
+ *   once in it. A shuffled order mixes the legs, so then only the season
+ *   as a whole is checked
+ * - no team is on two slots at once (teams that joined or withdrew
+ *   included) and, at the start, every team is on exactly one slot
+ * - no team is named like the free team, or its matches would be shown as
+ *   byes
+ * Everything is checked in O(total matches): one bitset of the slots is
+ *   cleared and filled on each matchdate, and one bitmap has a bit per pair
+ *   of slots (per ordered pair in a two rounds tournament), so a pair seen
+ *   twice is found at once. As every matchdate holds m/2 pairs, no pair
+ *   seen twice also means every pair was seen. The bitmap takes m^2/16
+ *   bytes (m^2/8 for two rounds), 156 MB for 50000 teams; checking the
+ *   halves takes another m^2/16 bytes, a bit per unordered pair set in the
+ *   first half and cleared in the second.
+ * @author Haiko
+ */
+public final class FixtureValidator {
+
+    /**
+     * Most problems reported, the check stops after them.
+     */
+    public static final int MAX_PROBLEMS = 100;
+
+    /**
+     * Not instantiable.
+     */
+    private FixtureValidator() {
+    }
+
+    /**
+     * Checks a Fixture.
+     * @param fixture a generated Fixture
+     * @return the problems found (at most MAX_PROBLEMS), empty if it's valid
+     * @throws IllegalStateException if the fixture hasn't been generated
+     */
+    public static List<String> check(Fixture fixture) {
+        fixture.pattern();
+        List<String> problems = new ArrayList<>();
+        TeamDictionary teams = fixture.getTeams();
+        int n = teams.size();
+        int half = fixture.getMatchesPerMatchdate();
+        int m = half * 2;
+        int count = fixture.getMatchdateCount();
+        boolean round = fixture.isRound();
+
+        String free = teams.getFreeDefault();
+        for (int t = 0; t < n && problems.size() < MAX_PROBLEMS; t++) {
+            if (teams.name(t) != null && teams.name(t).equals(free))
+                problems.add("Team " + t + " is named like the free team: " + free);
+        }
+
+        /* at the start every team is on exactly one slot */
+        long[] teamSeen = new long[(n + 63) >>> 6];
+        int frees = 0;
+        for (int s = 0; s < m; s++) {
+            int t = fixture.teamAt(s, 1);
+            if (t == TeamDictionary.FREE) frees++;
+            else if (!set(teamSeen, t)) problem(problems, "Team " + teams.name(t) + " is on two slots");
+        }
+        if (!fixture.hasChanges() && frees != m - n)
+            problem(problems, frees + " free slots for " + n + " teams");
+
+        long bits = round ? (long) m * m : (long) m * (m - 1) / 2;
+        long[] pairs = new long[(int) ((bits + 63) >>> 6)];
+        int first = count / 2;
+        long[] halves = round && legsApart(fixture.getMatchdatesOrder(), first)
+                ? new long[(int) (((long) m * (m - 1) / 2 + 63) >>> 6)] : null;
+        long[] slotSeen = new long[(m + 63) >>> 6];
+        long[] matches = new long[half];
+        /* without changes the teams are the slots, checked already */
+        boolean changes = fixture.hasChanges();
+        int home, away;
+        for (int k = 1; k <= count && problems.size() < MAX_PROBLEMS; k++) {
+            fixture.pairs(k, matches);
+            Arrays.fill(slotSeen, 0);
+            if (changes) Arrays.fill(teamSeen, 0);
+            for (long pair : matches) {
+                home = Match.home(pair);
+                away = Match.away(pair);
+                if (home < 0 || home >= m || away < 0 || away >= m || home == away) {
+                    problem(problems, "Matchdate " + k + ": no such match " + home + "-" + away);
+                    continue;
+                }
+                if (!set(slotSeen, home))
+                    problem(problems, "Matchdate " + k + ": slot " + home + " plays twice");
+                if (!set(slotSeen, away))
+                    problem(problems, "Matchdate " + k + ": slot " + away + " plays twice");
+                long unordered = (long) Math.max(home, away) * (Math.max(home, away) - 1) / 2
+                        + Math.min(home, away);
+                long bit = round ? (long) home * m + away : unordered;
+                if (halves != null
+                        && !(k <= first ? set(halves, unordered) : clear(halves, unordered)))
+                    problem(problems, "Matchdate " + k + ": slots " + home + " and " + away
+                            + " meet twice in the " + (k <= first ? "first" : "second") + " half");
+                if (!set(pairs, bit))
+                    problem(problems, "Matchdate " + k + ": slots " + home + " and " + away
+                            + (round ? " meet again with the same home" : " meet again"));
+                if (changes) {
+                    checkTeam(fixture, teams, home, k, teamSeen, problems);
+                    checkTeam(fixture, teams, away, k, teamSeen, problems);
+                }
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * Checks a Fixture.
+     * @param fixture a generated Fixture
+     * @throws IllegalStateException if it isn't valid, with the problems
+     * found
+     */
+    public static void validate(Fixture fixture) {
+        List<String> problems = check(fixture);
+        if (!problems.isEmpty())
+            throw new IllegalStateException("Invalid fixture: " + String.join("; ", problems));
+    }
+
+    /**
+     * Checks that the team on a slot on a matchdate plays only once.
+     * @param fixture
+     * @param teams
+     * @param slot
+     * @param k number of the matchdate
+     * @param seen teams seen on the matchdate
+     * @param problems
+     */
+    private static void checkTeam(Fixture fixture, TeamDictionary teams, int slot, int k,
+            long[] seen, List<String> problems) {
+        int t = fixture.teamAt(slot, k);
+        if (t != TeamDictionary.FREE && !set(seen, t))
+            problem(problems, "Matchdate " + k + ": " + teams.name(t) + " plays twice");
+    }
+
+    /**
+     * Checks if the order of the matchdates keeps the legs apart.
+     * @param order round shown on each matchdate
+     * @param first matchdates of the first half (rounds of a leg)
+     * @return true if the first half only shows rounds of one leg
+     */
+    private static boolean legsApart(int[] order, int first) {
+        for (int k = 1; k < first; k++) {
+            if ((order[k] <= first) != (order[0] <= first)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Clears a bit.
+     * @param bits the bitset
+     * @param i the bit
+     * @return true if it was set
+     */
+    private static boolean clear(long[] bits, long i) {
+        int w = (int) (i >>> 6);
+        long mask = 1L << i;
+        if ((bits[w] & mask) == 0) return false;
+        bits[w] &= ~mask;
+        return true;
+    }
+
+    /**
+     * Sets a bit.
+     * @param bits the bitset
+     * @param i the bit
+     * @return true if it wasn't set
+     */
+    private static boolean set(long[] bits, long i) {
+        int w = (int) (i >>> 6);
+        long mask = 1L << i;
+        if ((bits[w] & mask) != 0) return false;
+        bits[w] |= mask;
+        return true;
+    }
+
+    /**
+     * Adds a problem, unless there are too many already.
+     * @param problems
+     * @param problem
+     */
+    private static void problem(List<String> problems, String problem) {
+        if (problems.size() < MAX_PROBLEMS) problems.add(problem);
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Read-only Fixture, as FixtureBatch hands them out: it only has the
+ * methods that read the season (matchdates, schedules, opponents,
+ * breaks...), none that shuffle, generate or change it, and the Fixture
+ * it wraps never leaves it. So once built it never changes, and it can be
+ * shared by any amount of threads without any locking.
+ * toFixture() gives a Fixture of one's own that can be changed.
+ * @author Haiko
+ */
+public final class FixtureView implements Iterable<Matchdate>, ScheduleView {
+
+    /**
+     * The Fixture, never changed once built.
+     */
+    private final Fixture fixture;
+    /**
+     * Options it was built with.
+     */
+    private final FixtureOptions options;
+
+    /**
+     * Constructor
+     * @param fixture a generated Fixture nobody else holds
+     * @param options options it was built with
+     */
+    FixtureView(Fixture fixture, FixtureOptions options) {
+        this.fixture = fixture;
+        this.options = options;
+    }
+
+    /**
+     * @return the Fixture, for the classes of the package that only read it
+     * (e.g. FixtureWriter)
+     */
+    Fixture fixture() {
+        return fixture;
+    }
+
+    /**
+     * Builds the same Fixture again (same teams, options and seed), as a
+     * Fixture of its own that can be shuffled or changed.
+     * @return a new Fixture
+     */
+    public Fixture toFixture() {
+        TeamDictionary teams = fixture.getTeams();
+        String[] names = new String[teams.size()];
+        for (int i = 0; i < names.length; i++) names[i] = teams.name(i);
+        return new Fixture(names, options, fixture.getSeed());
+    }
+
+    /**
+     * @return options it was built with
+     */
+    public FixtureOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * @return seed it was built with
+     */
+    public long getSeed() {
+        return fixture.getSeed();
+    }
+
+    /**
+     * @return dictionary of the teams
+     */
+    public TeamDictionary getTeams() {
+        return fixture.getTeams();
+    }
+
+    @Override
+    public int getMatchdateCount() {
+        return fixture.getMatchdateCount();
+    }
+
+    @Override
+    public int getTeamCount() {
+        return fixture.getTeamCount();
+    }
+
+    /**
+     * @return true if the tournament is two rounds
+     */
+    public boolean isRound() {
+        return fixture.isRound();
+    }
+
+    /**
+     * @return the round of the pattern shown on each matchdate (a copy),
+     * see Fixture.getMatchdatesOrder()
+     */
+    public int[] getMatchdatesOrder() {
+        return fixture.getMatchdatesOrder();
+    }
+
+    /**
+     * @return amount of breaks, see Fixture.breaks()
+     */
+    public int breaks() {
+        return fixture.breaks();
+    }
+
+    /**
+     * Gets the season of a team, see Fixture.scheduleOf().
+     * @param team name of the team
+     * @return the season, a copy
+     * @throws IllegalArgumentException if there's no such team
+     */
+    public TeamSchedule scheduleOf(String team) {
+        return fixture.scheduleOf(team);
+    }
+
+    /**
+     * Opponent of a team on a matchdate, in constant time.
+     * @param team name of the team
+     * @param k number of the matchdate, from 1 to getMatchdateCount()
+     * @return name of the opponent, null if the team is free
+     * @throws IllegalArgumentException if there's no such team
+     */
+    public String opponent(String team, int k) {
+        return fixture.opponent(team, k);
+    }
+
+    @Override
+    public int opponent(int team, int k) {
+        return fixture.opponent(team, k);
+    }
+
+    @Override
+    public boolean isHome(int team, int k) {
+        return fixture.isHome(team, k);
+    }
+
+    /**
+     * Gets a matchdate.
+     * @param k number of the matchdate, from 1 to getMatchdateCount()
+     * @return the Matchdate, a new one on every call
+     */
+    public Matchdate matchdate(int k) {
+        return fixture.matchdate(k);
+    }
+
+    /**
+     * Iterates over the Matchdates in order.
+     * @return iterator over the Matchdates
+     */
+    @Override
+    public Iterator<Matchdate> iterator() {
+        return fixture.iterator();
+    }
+
+    /**
+     * @return stream of the Matchdates, in order
+     */
+    public Stream<Matchdate> stream() {
+        return fixture.stream();
+    }
+
+    /**
+     * Creates a string from the entire fixture.
+     * @return
+     */
+    @Override
+    public String toString() {
+        return fixture.toString();
+    }
+}
@@ -0,0 +1,540 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writes the text of a Fixture, Matchdate or Match straight to an
+ * Appendable (e.g. a Writer or a PrintStream) or to a WritableByteChannel.
+ * The text is the same toString() gives, but it goes through one reusable
+ * buffer instead of building a String, so rendering a whole season takes a
+ * fixed amount of memory (and a lazy Fixture is rendered one Matchdate at a
+ * time).
+ * Nothing is guaranteed to reach the target until flush() or close() is
+ * called.
+ * @author Haiko
+ */
+public class FixtureWriter implements Closeable, Flushable {
+
+    /**
+     * Line separator of the system, read only once.
+     */
+    static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    /**
+     * Default size of the buffer, in chars.
+     */
+    private static final int DEFAULT_BUFFER = 8192;
+
+    /**
+     * Target of the text, null when writing to a channel.
+     */
+    private final Appendable out;
+    /**
+     * Target of the bytes, null when writing to an Appendable.
+     */
+    private final WritableByteChannel channel;
+    /**
+     * Encoder of the chars, null when writing to an Appendable.
+     */
+    private final CharsetEncoder encoder;
+    /**
+     * Buffer of the encoded chars, null when writing to an Appendable.
+     */
+    private final ByteBuffer bytes;
+    /**
+     * Buffer of the text not yet written.
+     */
+    private final CharBuffer buffer;
+    /**
+     * Bytes of the text moved to the target so far: the encoded bytes when
+     * writing to a channel; otherwise the length of the text in UTF-8,
+     * only counted while counting is set.
+     */
+    private long written;
+    /**
+     * True while a phase is measured, see written.
+     */
+    private boolean counting;
+
+    /**
+     * Constructor
+     * @param out target of the text
+     * @param bufferSize size of the buffer, in chars
+     */
+    public FixtureWriter (Appendable out, int bufferSize) {
+        this.out = out;
+        this.channel = null;
+        this.encoder = null;
+        this.bytes = null;
+        this.buffer = newBuffer(bufferSize);
+    }
+
+    /**
+     * Constructor with the default buffer size.
+     * @param out target of the text
+     */
+    public FixtureWriter (Appendable out) {
+        this(out, DEFAULT_BUFFER);
+    }
+
+    /**
+     * Constructor
+     * @param channel target of the bytes
+     * @param charset charset used to encode the text
+     * @param bufferSize size of the buffer, in chars
+     */
+    public FixtureWriter (WritableByteChannel channel, Charset charset, int bufferSize) {
+        this.out = null;
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate((int) Math.ceil(bufferSize * encoder.maxBytesPerChar()));
+        this.buffer = newBuffer(bufferSize);
+    }
+
+    /**
+     * Constructor with the default buffer size.
+     * @param channel target of the bytes
+     * @param charset charset used to encode the text
+     */
+    public FixtureWriter (WritableByteChannel channel, Charset charset) {
+        this(channel, charset, DEFAULT_BUFFER);
+    }
+
+    /**
+     * Creates the buffer of the text.
+     * @param bufferSize size of the buffer, in chars
+     * @return the buffer
+     */
+    private static CharBuffer newBuffer (int bufferSize) {
+        /* the digits of a number must fit in the buffer */
+        if (bufferSize < 16)
+            throw new IllegalArgumentException("Buffer too small: " + bufferSize);
+        return CharBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Writes every Matchdate of a Fixture, each one followed by an empty
+     * line. The matches are read straight from the Fixture (team ids), no
+     * Matchdate or Match is created.
+     * @param fixture
+     * @return this writer
+     * @throws IOException
+     */
+    public FixtureWriter write (Fixture fixture) throws IOException {
+        Probe probe = Probe.start(FixtureListener.Phase.RENDER);
+        long start = 0;
+        if (probe != null) {
+            /* only the bytes of this Fixture are counted */
+            drain();
+            counting = true;
+            start = written;
+        }
+        TeamDictionary teams = fixture.getTeams();
+        long[] round = new long[fixture.getMatchesPerMatchdate()];
+        int home, away, free, frees;
+        for (int k = 1; k <= fixture.getMatchdateCount(); k++) {
+            fixture.pairs(k, round);
+            append("Matchdate ");
+            append(k);
+            append(LINE_SEPARATOR);
+            free = TeamDictionary.FREE;
+            frees = 0;
+            for (long pair : round) {
+                home = fixture.teamAt(Match.home(pair), k);
+                away = fixture.teamAt(Match.away(pair), k);
+                if (home == TeamDictionary.FREE && away == TeamDictionary.FREE) continue;
+                if (home == TeamDictionary.FREE || away == TeamDictionary.FREE) {
+                    if (frees++ == 0) free = home == TeamDictionary.FREE ? away : home;
+                    continue;
+                }
+                writeMatch(teams.name(home), teams.name(away));
+            }
+            if (frees == 1) {
+                writeMatch(teams.name(free), null);
+            } else if (frees > 1) {
+                for (long pair : round) {
+                    home = fixture.teamAt(Match.home(pair), k);
+                    away = fixture.teamAt(Match.away(pair), k);
+                    if (home == TeamDictionary.FREE && away == TeamDictionary.FREE) continue;
+                    if (home == TeamDictionary.FREE) writeMatch(teams.name(away), null);
+                    else if (away == TeamDictionary.FREE) writeMatch(teams.name(home), null);
+                }
+            }
+            append(LINE_SEPARATOR);
+        }
+        if (probe != null) {
+            drain();
+            counting = false;
+            probe.end(fixture.getMatchesPerMatchdate() * 2, written - start);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a read-only Fixture, just like write(Fixture).
+     * @param fixture
+     * @return this writer
+     * @throws IOException
+     */
+    public FixtureWriter write (FixtureView fixture) throws IOException {
+        return write(fixture.fixture());
+    }
+
+    /**
+     * Writes every group of a group stage: "Group g" and then its
+     * matchdates, just like write(Fixture) writes them.
+     * @param stage
+     * @return this writer
+     * @throws IOException
+     */
+    public FixtureWriter write (GroupStageFixture stage) throws IOException {
+        TeamDictionary teams = stage.getTeams();
+        for (int g = 0; g < stage.getGroupCount(); g++) {
+            append("Group ");
+            append(g + 1);
+            append(LINE_SEPARATOR);
+            for (int k = 1; k <= stage.getMatchdateCount(g); k++) {
+                GroupStageFixture.View date = stage.matchdate(g, k);
+                append("Matchdate ");
+                append(k);
+                append(LINE_SEPARATOR);
+                int free = -1;
+                for (int j = 0; j < date.size(); j++) {
+                    if (date.away(j) == TeamDictionary.FREE) free = date.home(j);
+                    else writeMatch(teams.name(date.home(j)), teams.name(date.away(j)));
+                }
+                /* a group has at most one free team */
+                if (free >= 0) writeMatch(teams.name(free), null);
+                append(LINE_SEPARATOR);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes every Matchdate given, each one followed by an empty line
+     * (e.g. the rounds of a SwissFixture or a KnockoutFixture).
+     * @param dates
+     * @return this writer
+     * @throws IOException
+     */
+    public FixtureWriter write (Iterable<Matchdate> dates) throws IOException {
+        for (Matchdate date : dates) {
+            write(date);
+            append(LINE_SEPARATOR);
+        }
+        return this;
+    }
+
+    /**
+     * Writes one line with a match.
+     * @param home home team
+     * @param away away team, null if home is free
+     * @throws IOException
+     */
+    private void writeMatch (String home, String away) throws IOException {
+        if (away != null) {
+            append(home);
+            append("  vs.  ");
+            append(away);
+        } else {
+            append("Free: ");
+            append(home);
+        }
+        append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes a Matchdate: its number, then one line per Match, the free team
+     * (if any) last.
+     * The matches are walked only once; they're only walked again in the
+     * unusual case of more than one free team.
+     * @param date
+     * @return this writer
+     * @throws IOException
+     */
+    public FixtureWriter write (Matchdate date) throws IOException {
+        append("Matchdate ");
+        append(date.number);
+        append(LINE_SEPARATOR);
+        Match free = null;
+        int frees = 0;
+        for (Match m : date.matches) {
+            if (m.getAway() == null) {
+                if (frees++ == 0) free = m;
+                continue;
+            }
+            write(m);
+            append(LINE_SEPARATOR);
+        }
+        if (frees == 1) {
+            write(free);
+            append(LINE_SEPARATOR);
+        } else if (frees > 1) {
+            for (Match m : date.matches) {
+                if (m.getAway() == null) {
+                    write(m);
+                    append(LINE_SEPARATOR);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes a Match (without line separator).
+     * @param match
+     * @return this writer
+     * @throws IOException
+     */
+    public FixtureWriter write (Match match) throws IOException {
+        if (match.getAway() != null) {
+            append(match.getHome());
+            append("  vs.  ");
+            append(match.getAway());
+        } else {
+            append("Free: ");
+            append(match.getHome());
+        }
+        return this;
+    }
+
+    /**
+     * Writes a line separator.
+     * @return this writer
+     * @throws IOException
+     */
+    public FixtureWriter newLine () throws IOException {
+        append(LINE_SEPARATOR);
+        return this;
+    }
+
+    /**
+     * Adds text to the buffer.
+     * @param s text, "null" if null
+     * @throws IOException
+     */
+    private void append (String s) throws IOException {
+        if (s == null) s = "null";
+        int i = 0, len = s.length(), chunk;
+        while (i < len) {
+            if (!buffer.hasRemaining()) drain();
+            chunk = Math.min(buffer.remaining(), len - i);
+            buffer.put(s, i, i + chunk);
+            i += chunk;
+        }
+    }
+
+    /**
+     * Adds the digits of a number to the buffer, without creating a String.
+     * @param value
+     * @throws IOException
+     */
+    private void append (int value) throws IOException {
+        if (buffer.remaining() < 11) drain();
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                append(Integer.toString(value));
+                return;
+            }
+            buffer.put('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (int x = value; x >= 10; x /= 10) digits++;
+        int end = buffer.position() + digits;
+        for (int p = end - 1; p >= buffer.position(); p--) {
+            buffer.put(p, (char) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Moves the buffered text to the target and empties the buffer.
+     * @throws IOException
+     */
+    private void drain () throws IOException {
+        buffer.flip();
+        if (counting && out != null) written += utf8Length(buffer);
+        if (out instanceof Writer) {
+            ((Writer) out).write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+        } else if (out != null) {
+            out.append(buffer);
+        } else {
+            encode(false);
+            /* a high surrogate at the end waits for its low surrogate */
+            buffer.compact();
+            return;
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Length of some text in UTF-8.
+     * @param text
+     * @return the amount of bytes
+     */
+    private static long utf8Length (CharBuffer text) {
+        long length = 0;
+        char c;
+        for (int i = text.position(); i < text.limit(); i++) {
+            c = text.get(i);
+            if (c < 0x80) length++;
+            else if (c < 0x800) length += 2;
+            /* each half of a surrogate pair counts 2 of its 4 bytes */
+            else if (Character.isSurrogate(c)) length += 2;
+            else length += 3;
+        }
+        return length;
+    }
+
+    /**
+     * Encodes the flipped buffer and writes the bytes to the channel.
+     * @param end true if no more text follows
+     * @throws IOException
+     */
+    private void encode (boolean end) throws IOException {
+        CoderResult result;
+        do {
+            result = encoder.encode(buffer, bytes, end);
+            writeBytes();
+        } while (result.isOverflow());
+    }
+
+    /**
+     * Writes the encoded bytes to the channel and empties the byte buffer.
+     * @throws IOException
+     */
+    private void writeBytes () throws IOException {
+        bytes.flip();
+        written += bytes.remaining();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Writes everything buffered so far to the target, and flushes the
+     * target if it's Flushable.
+     * @throws IOException
+     */
+    @Override
+    public void flush () throws IOException {
+        drain();
+        if (out instanceof Flushable) ((Flushable) out).flush();
+    }
+
+    /**
+     * Flushes and closes the target if it's Closeable.
+     * @throws IOException
+     */
+    @Override
+    public void close () throws IOException {
+        flush();
+        if (channel != null) {
+            /* a lone high surrogate left in the buffer is replaced */
+            buffer.flip();
+            encode(true);
+            encoder.flush(bytes);
+            writeBytes();
+            buffer.clear();
+            channel.close();
+        } else if (out instanceof Closeable) {
+            ((Closeable) out).close();
+        }
+    }
+
+    /**
+     * Text of a Fixture, used by Fixture.toString()
+     * @param fixture
+     * @return the text
+     */
+    static String render (Fixture fixture) {
+        StringBuilder x = new StringBuilder();
+        try {
+            new FixtureWriter(x).write(fixture).flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // a StringBuilder never throws
+        }
+        return x.toString();
+    }
+
+    /**
+     * Text of a group stage, used by GroupStageFixture.toString()
+     * @param stage
+     * @return the text
+     */
+    static String render (GroupStageFixture stage) {
+        StringBuilder x = new StringBuilder();
+        try {
+            new FixtureWriter(x).write(stage).flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // a StringBuilder never throws
+        }
+        return x.toString();
+    }
+
+    /**
+     * Text of some Matchdates, used by SwissFixture.toString() and
+     * KnockoutFixture.toString()
+     * @param dates
+     * @return the text
+     */
+    static String render (Iterable<Matchdate> dates) {
+        StringBuilder x = new StringBuilder();
+        try {
+            new FixtureWriter(x).write(dates).flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // a StringBuilder never throws
+        }
+        return x.toString();
+    }
+
+    /**
+     * Text of a Matchdate, used by Matchdate.toString()
+     * @param date
+     * @return the text
+     */
+    static String render (Matchdate date) {
+        StringBuilder x = new StringBuilder();
+        try {
+            new FixtureWriter(x, 256).write(date).flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // a StringBuilder never throws
+        }
+        return x.toString();
+    }
+}
@@ -0,0 +1,439 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The group stage of a cup: many small round robins (groups) generated
+ * together into one arena of columnar primitive arrays, instead of one
+ * Fixture per group with its own matrix, dictionary and Matchdates.
+ * Match i of the arena is played by groupAt(i) on its matchdate
+ * matchdateAt(i), homeAt(i) against awayAt(i) (ids of one TeamDictionary holding every
+ * entrant). The matches of a group come one after another, matchdate by
+ * matchdate, each matchdate taking half the slots of the group; a free team
+ * (odd groups) is stored as a match whose away team is TeamDictionary.FREE.
+ * Every group of the same size uses the same RoundRobinTemplate, and the
+ * whole stage is built in one pass over the arena.
+ * Group g is exactly the Fixture new Fixture(groups[g], options,
+ * getSeed(g)) would build (only generated: lazy is ignored).
+ * Instances are never changed once built.
+ * @author Haiko
+ */
+public final class GroupStageFixture {
+
+    /**
+     * Dictionary of every entrant, group after group.
+     */
+    private final TeamDictionary teams;
+    /**
+     * True if each group plays two rounds.
+     */
+    private final boolean round;
+    /**
+     * Seed the seed of each group comes from.
+     */
+    private final long seed;
+    /**
+     * Id of the first team of each group, plus the amount of teams.
+     */
+    private final int[] teamStart;
+    /**
+     * Position of the first match of each group, plus the amount of
+     * matches.
+     */
+    private final int[] matchStart;
+    /**
+     * Group of each match.
+     */
+    private final int[] group;
+    /**
+     * Matchdate of each match (within its group).
+     */
+    private final int[] matchdate;
+    /**
+     * Home team of each match.
+     */
+    private final int[] home;
+    /**
+     * Away team of each match, TeamDictionary.FREE if the home team is free.
+     */
+    private final int[] away;
+    /**
+     * Most matchdates of a group.
+     */
+    private final int matchdates;
+
+    /**
+     * Constructor: generates every group.
+     * @param groups names of the teams of each group (at least 2 each)
+     * @param options freeDefault, round, randomTeams, randomDates,
+     * materialize and minBreaks are used like a Fixture uses them
+     * @param seed seed of the random generators, see getSeed()
+     */
+    public GroupStageFixture(String[][] groups, FixtureOptions options, long seed) {
+        this.round = options.isRound();
+        this.seed = seed;
+        int legs = round ? 2 : 1;
+
+        /* first the size of everything, so each column is allocated once */
+        teamStart = new int[groups.length + 1];
+        matchStart = new int[groups.length + 1];
+        int most = 0;
+        for (int g = 0; g < groups.length; g++) {
+            int n = groups[g].length;
+            if (n < 2)
+                throw new IllegalArgumentException("Group " + (g+1) + " has " + n + " teams");
+            int m = n % 2 == 0 ? n : n + 1;
+            teamStart[g+1] = teamStart[g] + n;
+            matchStart[g+1] = Math.addExact(matchStart[g], legs * (m-1) * (m/2));
+            most = Math.max(most, legs * (m-1));
+        }
+        matchdates = most;
+        String[] names = new String[teamStart[groups.length]];
+        for (int g = 0; g < groups.length; g++) {
+            System.arraycopy(groups[g], 0, names, teamStart[g], groups[g].length);
+        }
+        teams = new TeamDictionary(names, options.getFreeDefault());
+        int total = matchStart[groups.length];
+        group = new int[total];
+        matchdate = new int[total];
+        home = new int[total];
+        away = new int[total];
+
+        /* then every group, in one pass over the arena */
+        Random random = new Random();
+        int[] slots = new int[0], rounds = new int[0];
+        long[] pairs = new long[0];
+        for (int g = 0; g < groups.length; g++) {
+            int n = groups[g].length;
+            int m = n % 2 == 0 ? n : n + 1;
+            int count = legs * (m-1);
+            RoundRobinTemplate template = RoundRobinTemplate.of(m, options.isMinBreaks(),
+                    options.isMaterialize());
+            template.buildLegs(legs, false);
+            if (slots.length < m) slots = new int[m];
+            if (rounds.length < count) rounds = new int[count];
+            if (pairs.length < m/2) pairs = new long[m/2];
+            for (int i = 0; i < n; i++) slots[i] = teamStart[g] + i;
+            if (m > n) slots[n] = TeamDictionary.FREE;
+            for (int k = 0; k < count; k++) rounds[k] = k+1;
+
+            /* the same shuffles as a Fixture, in the same order */
+            random.setSeed(getSeed(g));
+            if (options.isRandomTeams()) Fixture.shuffle(slots, n, random);
+            if (options.isRandomDates())
+                Fixture.shuffleRounds(rounds, m, round, options.isMinBreaks(), random);
+
+            int i = matchStart[g], h, a;
+            for (int k = 1; k <= count; k++) {
+                template.round(rounds[k-1], pairs);
+                for (int p = 0; p < m/2; p++) {
+                    h = slots[Match.home(pairs[p])];
+                    a = slots[Match.away(pairs[p])];
+                    if (h == TeamDictionary.FREE) {
+                        h = a;
+                        a = TeamDictionary.FREE;
+                    }
+                    group[i] = g;
+                    matchdate[i] = k;
+                    home[i] = h;
+                    away[i] = a;
+                    i++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor with a random seed.
+     * @param groups names of the teams of each group
+     * @param options see the full constructor
+     */
+    public GroupStageFixture(String[][] groups, FixtureOptions options) {
+        this(groups, options, new Random().nextLong());
+    }
+
+    /**
+     * Seed of the random generator of a group: group g is the same as
+     * new Fixture(groups[g], options, getSeed(g)).
+     * @param g group, from 0
+     * @return the seed
+     */
+    public long getSeed(int g) {
+        /* spread out, the first values of java.util.Random for close seeds
+        are alike */
+        return seed ^ (g + 1) * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * @return dictionary of every entrant
+     */
+    public TeamDictionary getTeams() {
+        return teams;
+    }
+
+    /**
+     * @return amount of groups
+     */
+    public int getGroupCount() {
+        return teamStart.length - 1;
+    }
+
+    /**
+     * @return amount of matches of every group together (free teams
+     * included)
+     */
+    public int getMatchCount() {
+        return group.length;
+    }
+
+    /**
+     * @return matchdates of the biggest group
+     */
+    public int getMatchdateCount() {
+        return matchdates;
+    }
+
+    /**
+     * @param g group, from 0
+     * @return amount of matchdates of the group
+     */
+    public int getMatchdateCount(int g) {
+        int m = slotsOf(g);
+        return (round ? 2 : 1) * (m-1);
+    }
+
+    /**
+     * @param g group, from 0
+     * @return amount of teams of the group
+     */
+    public int getTeamCount(int g) {
+        return teamStart[g+1] - teamStart[g];
+    }
+
+    /**
+     * @param g group, from 0
+     * @return id of the first team of the group, the others follow it
+     */
+    public int firstTeam(int g) {
+        return teamStart[g];
+    }
+
+    /**
+     * Slots of a group (its teams plus the free team if it's odd).
+     * @param g group, from 0
+     * @return amount of slots
+     */
+    private int slotsOf(int g) {
+        int n = getTeamCount(g);
+        return n % 2 == 0 ? n : n + 1;
+    }
+
+    /**
+     * @param i position of the match in the arena
+     * @return group of the match
+     */
+    public int groupAt(int i) {
+        return group[i];
+    }
+
+    /**
+     * @param i position of the match in the arena
+     * @return matchdate of the match within its group, from 1
+     */
+    public int matchdateAt(int i) {
+        return matchdate[i];
+    }
+
+    /**
+     * @param i position of the match in the arena
+     * @return id of the home team (the team that is free, if it is)
+     */
+    public int homeAt(int i) {
+        return home[i];
+    }
+
+    /**
+     * @param i position of the match in the arena
+     * @return id of the away team, TeamDictionary.FREE if the home team is
+     * free
+     */
+    public int awayAt(int i) {
+        return away[i];
+    }
+
+    /**
+     * Every match of a group.
+     * @param g group, from 0
+     * @return the view
+     */
+    public View group(int g) {
+        if (g < 0 || g >= getGroupCount())
+            throw new IndexOutOfBoundsException("No such group: " + g);
+        return new View(new int[] {matchStart[g]}, new int[] {0, matchStart[g+1] - matchStart[g]});
+    }
+
+    /**
+     * The matches of a group on one of its matchdates.
+     * @param g group, from 0
+     * @param k matchdate, from 1 to getMatchdateCount(g)
+     * @return the view
+     */
+    public View matchdate(int g, int k) {
+        if (k < 1 || k > getMatchdateCount(g))
+            throw new IndexOutOfBoundsException("No such matchdate: " + k);
+        int half = slotsOf(g) / 2;
+        return new View(new int[] {matchStart[g] + (k-1) * half}, new int[] {0, half});
+    }
+
+    /**
+     * The matches of every group on a matchdate (groups with fewer
+     * matchdates don't play on the last ones).
+     * @param k matchdate, from 1 to getMatchdateCount()
+     * @return the view
+     */
+    public View matchdate(int k) {
+        if (k < 1 || k > matchdates)
+            throw new IndexOutOfBoundsException("No such matchdate: " + k);
+        int groups = getGroupCount();
+        int[] starts = new int[groups];
+        int[] ends = new int[groups + 1];
+        int s = 0, half;
+        for (int g = 0; g < groups; g++) {
+            if (k > getMatchdateCount(g)) continue;
+            half = slotsOf(g) / 2;
+            starts[s] = matchStart[g] + (k-1) * half;
+            ends[s+1] = ends[s] + half;
+            s++;
+        }
+        return new View(Arrays.copyOf(starts, s), Arrays.copyOf(ends, s + 1));
+    }
+
+    /**
+     * Matchdate of a group as a Matchdate, for code that works with
+     * Matchdates; every call creates it again.
+     * @param g group, from 0
+     * @param k matchdate, from 1 to getMatchdateCount(g)
+     * @return the Matchdate
+     */
+    public Matchdate toMatchdate(int g, int k) {
+        View v = matchdate(g, k);
+        Matchdate date = new Matchdate(k, v.size());
+        for (int j = 0; j < v.size(); j++) {
+            int h = v.home(j), a = v.away(j);
+            date.addMatch(a == TeamDictionary.FREE ? new Match(teams.name(h))
+                    : new Match(teams.name(h), teams.name(a)));
+        }
+        return date;
+    }
+
+    /**
+     * Convert the known data to a string: every group, each one as its
+     * Fixture would be shown.
+     * @return
+     */
+    @Override
+    public String toString() {
+        return FixtureWriter.render(this);
+    }
+
+    /**
+     * Some matches of the arena, read in place: runs of consecutive matches
+     * seen as one list. Views are cheap and never change.
+     */
+    public final class View {
+
+        /**
+         * Position in the arena of the first match of each run.
+         */
+        private final int[] starts;
+        /**
+         * Position in the view of the first match of each run, plus the
+         * size of the view.
+         */
+        private final int[] ends;
+
+        /**
+         * Constructor
+         * @param starts
+         * @param ends
+         */
+        private View(int[] starts, int[] ends) {
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        /**
+         * @return amount of matches
+         */
+        public int size() {
+            return ends[starts.length];
+        }
+
+        /**
+         * Position of a match in the arena.
+         * @param j position in the view, from 0
+         * @return position in the arena
+         */
+        public int position(int j) {
+            if (j < 0 || j >= size())
+                throw new IndexOutOfBoundsException("No such match: " + j);
+            int r = starts.length == 1 ? 0 : Arrays.binarySearch(ends, 0, starts.length, j);
+            if (r < 0) r = -r - 2;
+            /* empty runs can't happen, so r is the run holding j */
+            return starts[r] + j - ends[r];
+        }
+
+        /**
+         * @param j position in the view
+         * @return group of the match
+         */
+        public int group(int j) {
+            return group[position(j)];
+        }
+
+        /**
+         * @param j position in the view
+         * @return matchdate of the match
+         */
+        public int matchdate(int j) {
+            return matchdate[position(j)];
+        }
+
+        /**
+         * @param j position in the view
+         * @return id of the home team
+         */
+        public int home(int j) {
+            return home[position(j)];
+        }
+
+        /**
+         * @param j position in the view
+         * @return id of the away team, TeamDictionary.FREE if the home team
+         * is free
+         */
+        public int away(int j) {
+            return away[position(j)];
+        }
+    }
+}
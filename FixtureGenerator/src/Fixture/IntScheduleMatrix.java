@@ -0,0 +1,51 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+/**
+ * ScheduleMatrix backed by a flat int array (row after row).
+ * @author Haiko
+ */
+public class IntScheduleMatrix extends ScheduleMatrix {
+
+    /**
+     * Cells of the matrix, row after row.
+     */
+    private final int [] cells;
+
+    /**
+     * Constructor
+     * @param size amount of rows (and columns)
+     */
+    public IntScheduleMatrix (int size) {
+        super(size);
+        cells = new int [cells(size)];
+    }
+
+    @Override
+    public int get (int f, int c) {
+        return cells[f * size + c];
+    }
+
+    @Override
+    public void set (int f, int c, int value) {
+        cells[f * size + c] = value;
+    }
+}
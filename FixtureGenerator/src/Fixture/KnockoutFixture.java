@@ -0,0 +1,504 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Knockout tournament: single elimination (a player is out after one
+ * defeat) or double elimination (after two: the losers of the winners'
+ * bracket get a second chance in the losers' bracket, and the winners of
+ * both brackets meet in the final; if the winner of the losers' bracket
+ * wins it, they meet once more, since both lost once).
+ * Players are given in seeding order (the first one is the top seed) and
+ * placed so the top seeds meet as late as possible. If the amount of
+ * players isn't a power of two, the top seeds are free in the first round.
+ * The bracket is built beforehand: a match whose players aren't known yet
+ * shows where they come from ("Winner of match 3"), and they're filled in
+ * as winners are set (setWinner()). Every match is a node that takes its
+ * players from seeds or from the winner or loser of earlier matches, and
+ * the matchdate of a match is the first one after every match it depends
+ * on.
+ * The matchdates are given as Matchdates, just like a Fixture's.
+ * @author Haiko
+ */
+public class KnockoutFixture implements Iterable<Matchdate> {
+
+    /**
+     * Player not known yet.
+     */
+    private static final int UNKNOWN = -2;
+    /**
+     * Kinds of source of a player of a match: seed, winner or loser of a
+     * match, or the loser of the final only if it hadn't lost before (the
+     * second final of a double elimination). The source is
+     * kind | index << 2.
+     */
+    private static final int SEED = 0, WINNER = 1, LOSER = 2, RESET = 3;
+
+    /**
+     * Dictionary of the players.
+     */
+    private final TeamDictionary players;
+    /**
+     * True for double elimination.
+     */
+    private final boolean doubleElimination;
+    /**
+     * Source of the home and away player of each match, by number - 1.
+     */
+    private final int[] homeSource, awaySource;
+    /**
+     * Index of the first match of each matchdate (matches are numbered in
+     * matchdate order), by matchdate - 1; the last one is the amount of
+     * matches.
+     */
+    private final int[] first;
+    /**
+     * Match the winner and the loser of each match play next, -1 if none.
+     */
+    private final int[] winnerTo, loserTo;
+    /**
+     * First match of each player.
+     */
+    private final int[] seeded;
+    /**
+     * Home and away player (id) of each match, FREE if there's none,
+     * UNKNOWN if it isn't known yet.
+     */
+    private final int[] home, away;
+    /**
+     * Winner of each match, UNKNOWN until it's known.
+     */
+    private final int[] winner;
+    /**
+     * Winners set by setWinner(), UNKNOWN if not set.
+     */
+    private final int[] chosen;
+    /**
+     * Amount of matchdates.
+     */
+    private final int matchdates;
+
+    /**
+     * Constructor
+     * @param players names of the players, in seeding order
+     * @param doubleElimination true for double elimination
+     * @param freeDefault name shown for a free player
+     */
+    public KnockoutFixture(String[] players, boolean doubleElimination, String freeDefault) {
+        int n = players.length;
+        if (n < 2)
+            throw new IllegalArgumentException("At least 2 players are needed");
+        this.players = new TeamDictionary(players, freeDefault);
+        this.doubleElimination = doubleElimination;
+        int size = Integer.highestOneBit(n - 1) << 1;
+        int rounds = Integer.numberOfTrailingZeros(size);
+
+        /* matches in the order they're created, by source */
+        int total = size - 1 + (doubleElimination ? size : 0);
+        int[] hs = new int[total], as = new int[total];
+        int count = 0;
+
+        /* winners' bracket, seeds placed so 1 and 2 can only meet in the
+        final */
+        int[] order = {0};
+        while (order.length < size) {
+            int[] x = new int[order.length * 2];
+            for (int i = 0; i < order.length; i++) {
+                x[2*i] = order[i];
+                x[2*i + 1] = 2 * order.length - 1 - order[i];
+            }
+            order = x;
+        }
+        int[][] winners = new int[rounds][];
+        for (int r = 0; r < rounds; r++) {
+            winners[r] = new int[size >> (r + 1)];
+            for (int i = 0; i < winners[r].length; i++) {
+                if (r == 0) {
+                    hs[count] = SEED | order[2*i] << 2;
+                    as[count] = SEED | order[2*i + 1] << 2;
+                } else {
+                    hs[count] = WINNER | winners[r-1][2*i] << 2;
+                    as[count] = WINNER | winners[r-1][2*i + 1] << 2;
+                }
+                winners[r][i] = count++;
+            }
+        }
+        int champion = WINNER | winners[rounds-1][0] << 2;
+
+        if (doubleElimination) {
+            /* losers' bracket: the losers of the first round play each
+            other, then each round of the winners' bracket drops its losers
+            (in reverse order, to avoid rematches) against the survivors,
+            who play each other again before the next drop */
+            int[] survivors;
+            if (rounds == 1) {
+                survivors = new int[] {LOSER | winners[0][0] << 2};
+            } else {
+                survivors = new int[size / 4];
+                for (int i = 0; i < survivors.length; i++) {
+                    hs[count] = LOSER | winners[0][2*i] << 2;
+                    as[count] = LOSER | winners[0][2*i + 1] << 2;
+                    survivors[i] = WINNER | count++ << 2;
+                }
+                for (int r = 1; r < rounds; r++) {
+                    int[] dropped = winners[r];
+                    for (int i = 0; i < survivors.length; i++) {
+                        hs[count] = survivors[i];
+                        as[count] = LOSER | dropped[dropped.length - 1 - i] << 2;
+                        survivors[i] = WINNER | count++ << 2;
+                    }
+                    if (r < rounds - 1) {
+                        int[] x = new int[survivors.length / 2];
+                        for (int i = 0; i < x.length; i++) {
+                            hs[count] = survivors[2*i];
+                            as[count] = survivors[2*i + 1];
+                            x[i] = WINNER | count++ << 2;
+                        }
+                        survivors = x;
+                    }
+                }
+            }
+            /* the final, and the second one if needed */
+            hs[count] = champion;
+            as[count] = survivors[0];
+            count++;
+            hs[count] = RESET | (count - 1) << 2;
+            as[count] = WINNER | (count - 1) << 2;
+            count++;
+        }
+
+        /* matchdates: one after the latest match each match depends on */
+        int[] depth = new int[count];
+        int most = 0;
+        for (int i = 0; i < count; i++) {
+            depth[i] = 1 + Math.max(depthOf(hs[i], depth), depthOf(as[i], depth));
+            most = Math.max(most, depth[i]);
+        }
+        matchdates = most;
+
+        /* numbers follow the matchdates, in the order they were created
+        (counted by matchdate, so each matchdate starts at first[k - 1]) */
+        first = new int[matchdates + 1];
+        for (int i = 0; i < count; i++) first[depth[i]]++;
+        for (int k = 1; k <= matchdates; k++) first[k] += first[k - 1];
+        int[] at = Arrays.copyOf(first, matchdates);
+        int[] number = new int[count];
+        for (int i = 0; i < count; i++) number[i] = at[depth[i] - 1]++;
+        homeSource = new int[count];
+        awaySource = new int[count];
+        for (int i = 0; i < count; i++) {
+            homeSource[number[i]] = renumber(hs[i], number);
+            awaySource[number[i]] = renumber(as[i], number);
+        }
+        winnerTo = new int[count];
+        loserTo = new int[count];
+        Arrays.fill(winnerTo, -1);
+        Arrays.fill(loserTo, -1);
+        seeded = new int[n];
+        for (int i = 0; i < count; i++) {
+            link(homeSource[i], i);
+            link(awaySource[i], i);
+        }
+        home = new int[count];
+        away = new int[count];
+        winner = new int[count];
+        chosen = new int[count];
+        Arrays.fill(chosen, UNKNOWN);
+        for (int i = 0; i < count; i++) resolve(i);
+    }
+
+    /**
+     * Constructor, a free player is shown as "Free".
+     * @param players names of the players, in seeding order
+     * @param doubleElimination true for double elimination
+     */
+    public KnockoutFixture(String[] players, boolean doubleElimination) {
+        this(players, doubleElimination, "Free");
+    }
+
+    /**
+     * Matchdate of the match a source comes from.
+     * @param source
+     * @param depth matchdate of each match so far
+     * @return the matchdate, 0 for a seed
+     */
+    private static int depthOf(int source, int[] depth) {
+        return (source & 3) == SEED ? 0 : depth[source >>> 2];
+    }
+
+    /**
+     * A source with the new number of its match.
+     * @param source
+     * @param number new number of each match
+     * @return the source
+     */
+    private static int renumber(int source, int[] number) {
+        return (source & 3) == SEED ? source : (source & 3) | number[source >>> 2] << 2;
+    }
+
+    /**
+     * Notes that a match takes a player from a source.
+     * @param source
+     * @param match index of the match
+     */
+    private void link(int source, int match) {
+        int i = source >>> 2;
+        switch (source & 3) {
+            case SEED:
+                if (i < seeded.length) seeded[i] = match;
+                break;
+            case WINNER:
+                winnerTo[i] = match;
+                break;
+            default:
+                loserTo[i] = match;
+        }
+    }
+
+    /**
+     * Fills in the players and the winner of a match from its sources.
+     * @param i index of the match
+     * @return true if anything changed
+     */
+    private boolean resolve(int i) {
+        int h = playerOf(homeSource[i]), a = playerOf(awaySource[i]), w;
+        if (h == TeamDictionary.FREE) w = a;
+        else if (a == TeamDictionary.FREE) w = h;
+        else if (h == UNKNOWN || a == UNKNOWN) w = UNKNOWN;
+        else if (chosen[i] == h || chosen[i] == a) w = chosen[i];
+        else w = UNKNOWN;
+        if (h == home[i] && a == away[i] && w == winner[i]) return false;
+        home[i] = h;
+        away[i] = a;
+        winner[i] = w;
+        return true;
+    }
+
+    /**
+     * Fills in a match again, and the matches that depend on it as long as
+     * they change, so setting a winner only touches the matches it
+     * affects.
+     * @param match index of the match
+     */
+    private void propagate(int match) {
+        if (!resolve(match)) return;
+        /* matches that changed and whose dependents are still to be filled
+        in, each at most once */
+        int[] queue = new int[4];
+        int size = 0;
+        queue[size++] = match;
+        while (size > 0) {
+            /* the earliest match waiting first */
+            int j = 0;
+            for (int x = 1; x < size; x++) if (queue[x] < queue[j]) j = x;
+            int i = queue[j];
+            queue[j] = queue[--size];
+            for (int d = 0; d < 2; d++) {
+                int m = d == 0 ? winnerTo[i] : loserTo[i];
+                if (m < 0 || !resolve(m)) continue;
+                boolean waiting = false;
+                for (int x = 0; x < size; x++) waiting |= queue[x] == m;
+                if (waiting) continue;
+                if (size == queue.length) queue = Arrays.copyOf(queue, size * 2);
+                queue[size++] = m;
+            }
+        }
+    }
+
+    /**
+     * Player a source gives.
+     * @param source
+     * @return the id, FREE if none, UNKNOWN if not known yet
+     */
+    private int playerOf(int source) {
+        int i = source >>> 2;
+        switch (source & 3) {
+            case SEED:
+                return i < players.size() ? i : TeamDictionary.FREE;
+            case WINNER:
+                return winner[i];
+            case RESET:
+                if (winner[i] == UNKNOWN) return UNKNOWN;
+                return winner[i] == home[i] ? TeamDictionary.FREE : home[i];
+            default:
+                if (home[i] == TeamDictionary.FREE || away[i] == TeamDictionary.FREE)
+                    return TeamDictionary.FREE;
+                if (winner[i] == UNKNOWN) return UNKNOWN;
+                return winner[i] == home[i] ? away[i] : home[i];
+        }
+    }
+
+    /**
+     * @return true for double elimination
+     */
+    public boolean isDoubleElimination() {
+        return doubleElimination;
+    }
+
+    /**
+     * @return amount of matchdates
+     */
+    public int getMatchdateCount() {
+        return matchdates;
+    }
+
+    /**
+     * @return amount of matches, numbered from 1 in matchdate order (free
+     * players included)
+     */
+    public int getMatchCount() {
+        return home.length;
+    }
+
+    /**
+     * Sets the winner of a match, which fills in the matches that depend on
+     * it. A winner can be changed until the next match is played; the
+     * matches that depended on the old one lose the winners set for them.
+     * @param match number of the match, from 1
+     * @param player name of the winner
+     * @throws IllegalArgumentException if the player doesn't play that
+     * match
+     */
+    public void setWinner(int match, String player) {
+        if (match < 1 || match > home.length)
+            throw new IndexOutOfBoundsException("No such match: " + match);
+        int id = players.idOf(player);
+        int i = match - 1;
+        if (id == TeamDictionary.FREE || (id != home[i] && id != away[i]))
+            throw new IllegalArgumentException(player + " doesn't play match " + match);
+        chosen[i] = id;
+        propagate(i);
+    }
+
+    /**
+     * Finds the match a player plays on a matchdate.
+     * @param k number of the matchdate, from 1 to getMatchdateCount()
+     * @param player name of the player
+     * @return number of the match, -1 if the player doesn't play (or isn't
+     * known to play yet)
+     */
+    public int matchOf(int k, String player) {
+        int id = players.idOf(player);
+        if (id == TeamDictionary.FREE) return -1;
+        if (k < 1 || k > matchdates) return -1;
+        /* follow the player from their first match */
+        int i = seeded[id];
+        while (i >= 0 && i < first[k - 1]) {
+            if (winner[i] == id) i = winnerTo[i];
+            else if (winner[i] != UNKNOWN && (home[i] == id || away[i] == id)) i = loserTo[i];
+            else return -1;
+        }
+        if (i < 0 || i >= first[k] || (home[i] != id && away[i] != id)) return -1;
+        return i + 1;
+    }
+
+    /**
+     * Winner of a match.
+     * @param match number of the match, from 1
+     * @return name of the winner, null if not known yet
+     */
+    public String getWinner(int match) {
+        int w = winner[match - 1];
+        return w < 0 ? null : players.name(w);
+    }
+
+    /**
+     * @return name of the winner of the tournament, null if not known yet
+     */
+    public String getChampion() {
+        return getWinner(home.length);
+    }
+
+    /**
+     * Name shown for a player of a match.
+     * @param id the player
+     * @param source where the player comes from
+     * @return the name
+     */
+    private String name(int id, int source) {
+        if (id >= 0) return players.name(id);
+        int match = (source >>> 2) + 1;
+        switch (source & 3) {
+            case WINNER: return "Winner of match " + match;
+            case LOSER: return "Loser of match " + match;
+            default: return "Loser of match " + match + " (if needed)";
+        }
+    }
+
+    /**
+     * Gets a matchdate. Matches without players (free against free) and a
+     * second final that isn't needed are left out, a match with only one
+     * player shows it as free.
+     * @param k number of the matchdate, from 1 to getMatchdateCount()
+     * @return the Matchdate, a new one on every call
+     */
+    public Matchdate matchdate(int k) {
+        if (k < 1 || k > matchdates)
+            throw new IndexOutOfBoundsException("No such matchdate: " + k);
+        Matchdate date = new Matchdate(k);
+        for (int i = first[k - 1]; i < first[k]; i++) {
+            if (home[i] == TeamDictionary.FREE && away[i] == TeamDictionary.FREE) continue;
+            /* the second final isn't needed */
+            if (home[i] == TeamDictionary.FREE && (homeSource[i] & 3) == RESET) continue;
+            if (home[i] == TeamDictionary.FREE)
+                date.addMatch(new Match(name(away[i], awaySource[i])));
+            else if (away[i] == TeamDictionary.FREE)
+                date.addMatch(new Match(name(home[i], homeSource[i])));
+            else
+                date.addMatch(new Match(name(home[i], homeSource[i]), name(away[i], awaySource[i])));
+        }
+        return date;
+    }
+
+    /**
+     * Iterates over the matchdates in order.
+     * @return iterator over the Matchdates
+     */
+    @Override
+    public Iterator<Matchdate> iterator() {
+        return new Iterator<Matchdate>() {
+            private int next = 1;
+
+            @Override
+            public boolean hasNext() {
+                return next <= matchdates;
+            }
+
+            @Override
+            public Matchdate next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return matchdate(next++);
+            }
+        };
+    }
+
+    /**
+     * Creates a string from the entire bracket.
+     * @return
+     */
+    @Override
+    public String toString() {
+        return FixtureWriter.render(this);
+    }
+}
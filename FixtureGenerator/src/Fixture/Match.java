@@ -84,6 +84,35 @@ public class Match {
         this.away = away;
     }
     
+    /**
+     * Packs a match between two teams (or slots) into a long, so matches can
+     * be stored without creating objects.
+     * @param home home team
+     * @param away away team
+     * @return packed match
+     */
+    static long pack (int home, int away) {
+        return ((long) home << 32) | (away & 0xFFFFFFFFL);
+    }
+    
+    /**
+     * Home team of a packed match.
+     * @param pair packed match
+     * @return home team
+     */
+    static int home (long pair) {
+        return (int) (pair >> 32);
+    }
+    
+    /**
+     * Away team of a packed match.
+     * @param pair packed match
+     * @return away team
+     */
+    static int away (long pair) {
+        return (int) pair;
+    }
+    
     /**
      * Makes a string out of the match
      * @return match as string
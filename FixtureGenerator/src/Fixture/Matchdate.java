@@ -44,6 +44,16 @@ public class Matchdate {
         matches = new ArrayList<>();
     }
     
+    /**
+     * Constructor with the expected amount of matches
+     * @param number 
+     * @param capacity expected amount of matches (half the amount of teams)
+     */
+    public Matchdate (int number, int capacity) {
+        this.number = number;
+        matches = new ArrayList<>(capacity);
+    }
+    
     /**
      * Adds a Match to the Matchdate
      * @param match 
@@ -62,12 +72,15 @@ public class Matchdate {
     
     /**
      * Sets the sequential order of the Matchdate.
-     * It is the user's responsibility to make sure that no number is
-     * repeated. The behavior in any other case is unpredictable.
-     * YOU HAVE BEEN WARNED. (You're of course allowed to improve that)
-     * @param number 
+     * Only this Matchdate changes: the Matchdates of a Fixture are built
+     * again on each request, so to reorder them use
+     * Fixture.setMatchdatesOrder(), which checks the new order.
+     * @param number number of the matchdate, from 1
+     * @throws IllegalArgumentException if number is less than 1
      */
     public void setNumber (int number) {
+        if (number < 1)
+            throw new IllegalArgumentException("No such matchdate: " + number);
         this.number = number;
     }
     
@@ -82,26 +95,6 @@ public class Matchdate {
      */
     @Override
     public String toString () {
-        StringBuilder x = new StringBuilder();
-        x.append("Matchdate ");
-        x.append(number);
-        x.append(System.getProperty("line.separator"));
-        for (Match m: matches) {
-            if(m.getAway() != null) {
-                x.append(m);
-                x.append(System.getProperty("line.separator"));
-            }
-        }
-        /*
-         * Adds the free team if any
-         */
-        for (Match m: matches) {
-            if(m.getAway() == null) {
-                x.append(m);
-                x.append(System.getProperty("line.separator"));
-            }
-        }
-        
-        return x.toString();
+        return FixtureWriter.render(this);
     }
 }
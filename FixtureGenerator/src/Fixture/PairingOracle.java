@@ -0,0 +1,140 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+/**
+ * Read-only ScheduleMatrix that computes every cell of the pattern built by
+ * Fixture.generate() instead of storing it.
+ * The pattern follows a fixed rule (m is the even amount of teams):
+ * - cell (f,0) of the lower half holds f*2
+ * - cell (f,c) of the lower half holds f+c (second column f+1, plus 2 for
+ *   each step down the diagonal)
+ * - the upper half holds the lower value plus or minus m-1
+ * - cells of the lower half (except the first column) holding an even value
+ *   are switched with their mirror cell.
+ * So every question is answered in constant time and without creating any
+ * object, no matter how many teams there are.
+ * @author Haiko
+ */
+public class PairingOracle extends ScheduleMatrix {
+
+    /**
+     * Amount of matchdates of one round (m-1).
+     */
+    private final int k;
+
+    /**
+     * Constructor
+     * @param size amount of teams, must be even (the free team included)
+     */
+    public PairingOracle (int size) {
+        super(size);
+        if (size < 2 || size % 2 != 0)
+            throw new IllegalArgumentException("Amount of teams must be even: " + size);
+        k = size - 1;
+    }
+
+    /**
+     * Gets the value the matrix built by Fixture.generate() holds on a cell.
+     * @param f row
+     * @param c column
+     * @return matchdate number, ZERO on the main diagonal
+     */
+    @Override
+    public int get (int f, int c) {
+        if (f == c) return 0;
+        int lo = Math.min(f, c), hi = Math.max(f, c);
+        int lower = lo == 0 ? hi*2 : hi + lo;
+        int upper = lower > k ? lower - k : lower + k;
+        boolean switched = lo != 0 && lower % 2 == 0;
+        if (f > c) return switched ? upper : lower;
+        else return switched ? lower : upper;
+    }
+
+    /**
+     * Not supported, the oracle is read-only.
+     * @param f
+     * @param c
+     * @param value
+     */
+    @Override
+    public void set (int f, int c, int value) {
+        throw new UnsupportedOperationException("PairingOracle is read-only");
+    }
+
+    /**
+     * The matchdate of the first round on which two teams meet. On a two
+     * round tournament they meet again on matchdateOf(i,j) + (m-1).
+     * @param i team
+     * @param j another team
+     * @return matchdate number between 1 and m-1
+     */
+    public int matchdateOf (int i, int j) {
+        check(i); check(j);
+        if (i == j) throw new IllegalArgumentException("A team doesn't play itself: " + i);
+        int lo = Math.min(i, j), hi = Math.max(i, j);
+        int lower = lo == 0 ? hi*2 : hi + lo;
+        return lower > k ? lower - k : lower;
+    }
+
+    /**
+     * Checks if team i plays at home against team j on the first round.
+     * On the second round it's the other way around.
+     * @param i team
+     * @param j another team
+     * @return true if i is the home team
+     */
+    public boolean isHome (int i, int j) {
+        return matchdateOf(i, j) == get(i, j);
+    }
+
+    /**
+     * The team that plays against a team on a matchdate.
+     * @param team team
+     * @param matchdate matchdate number between 1 and 2*(m-1)
+     * @return the opponent
+     */
+    @Override
+    public int opponentOf (int team, int matchdate) {
+        check(team);
+        if (matchdate < 1 || matchdate > 2*k)
+            throw new IllegalArgumentException("No such matchdate: " + matchdate);
+        int r = (matchdate - 1) % k + 1;
+        int j;
+        if (team == 0) {
+            /* 2*j = r (mod m-1), (m/2) is the inverse of 2 since m-1 is odd */
+            j = (int) ((long) r * (size / 2) % k);
+            return j == 0 ? k : j;
+        }
+        /* team + j = r (mod m-1) */
+        j = ((r - team) % k + k) % k;
+        if (j == 0) j = k;
+        return j == team ? 0 : j;
+    }
+
+    /**
+     * Checks that a team exists.
+     * @param team
+     */
+    private void check (int team) {
+        if (team < 0 || team >= size)
+            throw new IllegalArgumentException("No such team: " + team);
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+
+/**
+ * A phase being measured. Probe.start() gives null when nobody listens, so
+ * a disabled probe costs two volatile reads and one check:
+ *     Probe probe = Probe.start(Phase.MATRIX);
+ *     ... the phase ...
+ *     if (probe != null) probe.end(m, cells);
+ * Whether the JFR event is recorded is cached, and updated by JFR each time
+ * a recording starts or stops. Everything that touches JFR lives in the
+ * class Jfr, loaded with Probe: without the jdk.jfr module the event is
+ * simply never recorded.
+ * @author Haiko
+ */
+final class Probe {
+
+    /**
+     * Listeners added with FixtureMetrics.addListener().
+     */
+    static volatile FixtureListener[] listeners = new FixtureListener[0];
+    /**
+     * True while the JFR event is enabled in some recording.
+     */
+    static volatile boolean recording;
+
+    static {
+        try {
+            Jfr.watch();
+        } catch (LinkageError e) {
+            /* no jdk.jfr module */
+        }
+    }
+
+    /**
+     * The phase.
+     */
+    private final FixtureListener.Phase phase;
+    /**
+     * Start of the phase, in ns.
+     */
+    private final long start;
+    /**
+     * The JFR event (a FixturePhaseEvent), null if it isn't recorded.
+     */
+    private final Object event;
+
+    /**
+     * Constructor
+     * @param phase
+     * @param jfr true if the JFR event is recorded
+     */
+    private Probe(FixtureListener.Phase phase, boolean jfr) {
+        this.phase = phase;
+        this.event = jfr ? Jfr.begin() : null;
+        start = System.nanoTime();
+    }
+
+    /**
+     * Starts measuring a phase.
+     * @param phase
+     * @return the probe, null if nobody listens
+     */
+    static Probe start(FixtureListener.Phase phase) {
+        boolean jfr = recording;
+        if (listeners.length == 0 && !jfr) return null;
+        return new Probe(phase, jfr);
+    }
+
+    /**
+     * The phase ended: the JFR event is committed and every listener is
+     * told.
+     * @param teams amount of slots of the Fixture
+     * @param count work done, see FixtureListener.Phase
+     */
+    void end(int teams, long count) {
+        long nanos = System.nanoTime() - start;
+        if (event != null) Jfr.end(event, phase, teams, count);
+        for (FixtureListener listener : listeners) {
+            listener.phaseEnded(phase, teams, nanos, count);
+        }
+    }
+
+    /**
+     * The bridge to JFR.
+     */
+    private static final class Jfr {
+
+        /**
+         * Keeps Probe.recording up to date.
+         */
+        static void watch() {
+            FlightRecorder.addListener(new FlightRecorderListener() {
+                @Override
+                public void recorderInitialized(FlightRecorder recorder) {
+                    update();
+                }
+
+                @Override
+                public void recordingStateChanged(Recording r) {
+                    update();
+                }
+            });
+            if (FlightRecorder.isInitialized()) update();
+        }
+
+        /**
+         * Reads whether the event is enabled.
+         */
+        static void update() {
+            recording = EventType.getEventType(FixturePhaseEvent.class).isEnabled();
+        }
+
+        /**
+         * Starts an event.
+         * @return the event
+         */
+        static Object begin() {
+            FixturePhaseEvent event = new FixturePhaseEvent();
+            event.begin();
+            return event;
+        }
+
+        /**
+         * Ends an event and commits it.
+         * @param event
+         * @param phase
+         * @param teams amount of slots of the Fixture
+         * @param count work done
+         */
+        static void end(Object event, FixtureListener.Phase phase, int teams, long count) {
+            FixturePhaseEvent x = (FixturePhaseEvent) event;
+            x.end();
+            if (x.shouldCommit()) {
+                x.phase = phase.name();
+                x.teams = teams;
+                x.count = count;
+                x.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,470 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+/**
+ * The part of a Fixture that only depends on the amount of teams: the
+ * pattern of matches (the matrix built by generate(), or the oracle taking
+ * its place) and the matches of every round as packed pairs of slots.
+ * A Fixture is then just a template plus the team on each slot plus the
+ * order in which the rounds are shown, so every Fixture of the same size
+ * shares one template: building 5000 divisions of 12 teams builds a single
+ * matrix.
+ * Templates are immutable once built and safe to share between threads.
+ * Each round's matches (a leg: the first m-1 rounds, or the second m-1)
+ * are only built the first time a Fixture that needs them asks for them,
+ * and never if a leg has more than MAX_LEG matches: then every round is
+ * computed from the oracle when it's asked for.
+ * Small templates are kept for good; large ones are kept as long as some
+ * Fixture uses them.
+ * @author Haiko
+ */
+public final class RoundRobinTemplate {
+
+    /**
+     * Templates up to this amount of slots are kept for good.
+     */
+    private static final int KEPT = 128;
+    /**
+     * Most matches of a leg that is built (an array can't hold more): legs
+     * of 65538 slots and up are never built.
+     */
+    static final long MAX_LEG = Integer.MAX_VALUE - 8;
+    /**
+     * Templates kept for good.
+     */
+    private static final ConcurrentHashMap<Integer, RoundRobinTemplate> SMALL =
+            new ConcurrentHashMap<>();
+    /**
+     * Templates kept while they're used.
+     */
+    private static final ConcurrentHashMap<Integer, WeakReference<RoundRobinTemplate>> LARGE =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Amount of slots (even).
+     */
+    private final int size;
+    /**
+     * True for the circle pattern.
+     */
+    private final boolean minBreaks;
+    /**
+     * The materialized matrix, or the oracle taking its place.
+     */
+    private final ScheduleMatrix pattern;
+    /**
+     * Oracle of the same pattern.
+     */
+    private final ScheduleMatrix oracle;
+    /**
+     * Matches of each leg, null until built: leg l holds the m/2 pairs of
+     * round r (from 1) from ((r-1) - l*(m-1)) * m/2 on. A leg is only seen
+     * once it's whole, from any thread.
+     */
+    private final AtomicReferenceArray<long[]> legs = new AtomicReferenceArray<>(2);
+
+    /**
+     * Constructor, use of() to share templates.
+     * @param size amount of slots, must be even
+     * @param minBreaks true for the circle pattern
+     * @param materialize true if the whole matrix should be built
+     * @param parallel true if the matrix should be built using every core
+     */
+    RoundRobinTemplate(int size, boolean minBreaks, boolean materialize, boolean parallel) {
+        this(size, minBreaks, materialize ? ScheduleMatrix.allocate(size) : null, parallel);
+    }
+
+    /**
+     * Constructor that fills a given matrix, e.g. one of another
+     * ScheduleMatrix implementation (see Fixture.newMatrix()). Such a
+     * template isn't shared.
+     * @param size amount of slots, must be even
+     * @param minBreaks true for the circle pattern
+     * @param matrix an empty matrix of size rows, null if the oracle should
+     * take its place
+     * @param parallel true if the matrix should be built using every core
+     */
+    RoundRobinTemplate(int size, boolean minBreaks, ScheduleMatrix matrix, boolean parallel) {
+        if (matrix != null && matrix.size() != size)
+            throw new IllegalArgumentException("Matrix of " + matrix.size()
+                    + " rows for " + size + " slots");
+        this.size = size;
+        this.minBreaks = minBreaks;
+        this.oracle = minBreaks ? new CircleOracle(size) : new PairingOracle(size);
+        Probe probe = Probe.start(FixtureListener.Phase.MATRIX);
+        if (matrix != null) {
+            if (minBreaks) fillCircle(matrix, parallel);
+            else if (parallel) fillParallel(matrix);
+            else fill(matrix);
+            this.pattern = matrix;
+        } else {
+            this.pattern = oracle;
+        }
+        if (probe != null) probe.end(size, matrix != null ? (long) size * size : 0);
+    }
+
+    /**
+     * Gets the template for an amount of slots, building it only if no
+     * Fixture has it yet.
+     * @param size amount of slots, must be even
+     * @param minBreaks true for the circle pattern
+     * @param materialize true if the whole matrix should be built
+     * @param parallel true if the matrix (if it's built now) should be built
+     * using every core
+     * @return the template
+     */
+    public static RoundRobinTemplate of(int size, boolean minBreaks, boolean materialize,
+            boolean parallel) {
+        if (size < 2 || size % 2 != 0)
+            throw new IllegalArgumentException("Amount of teams must be even: " + size);
+        /* size is even, so bit 0 is free for minBreaks; sizes never reach
+        the sign bit, which is free for materialize */
+        Integer key = size | (minBreaks ? 1 : 0) | (materialize ? 0 : 1 << 31);
+        if (size <= KEPT) {
+            return SMALL.computeIfAbsent(key,
+                    x -> new RoundRobinTemplate(size, minBreaks, materialize, parallel));
+        }
+        RoundRobinTemplate[] found = new RoundRobinTemplate[1];
+        LARGE.compute(key, (x, ref) -> {
+            found[0] = ref == null ? null : ref.get();
+            if (found[0] != null) return ref;
+            found[0] = new RoundRobinTemplate(size, minBreaks, materialize, parallel);
+            return new WeakReference<>(found[0]);
+        });
+        return found[0];
+    }
+
+    /**
+     * Same as of(size, minBreaks, materialize, false).
+     * @param size amount of slots, must be even
+     * @param minBreaks true for the circle pattern
+     * @param materialize true if the whole matrix should be built
+     * @return the template
+     */
+    public static RoundRobinTemplate of(int size, boolean minBreaks, boolean materialize) {
+        return of(size, minBreaks, materialize, false);
+    }
+
+    /**
+     * @return amount of slots
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return amount of rounds of both legs, 2*(m-1)
+     */
+    public int getRoundCount() {
+        return 2 * (size - 1);
+    }
+
+    /**
+     * @return true for the circle pattern
+     */
+    public boolean isMinBreaks() {
+        return minBreaks;
+    }
+
+    /**
+     * @return true if the whole matrix was built
+     */
+    public boolean isMaterialized() {
+        return pattern != oracle;
+    }
+
+    /**
+     * The pattern: the materialized matrix, or the oracle taking its place.
+     * It must not be changed.
+     * @return the pattern
+     */
+    ScheduleMatrix pattern() {
+        return pattern;
+    }
+
+    /**
+     * The pattern as an oracle, which finds the opponent of a slot in
+     * constant time.
+     * @return the oracle
+     */
+    ScheduleMatrix oracle() {
+        return oracle;
+    }
+
+    /**
+     * Slot that plays at home in a match of a round.
+     * @param round round, from 1 to getRoundCount()
+     * @param i position of the match in the round, from 0 to m/2-1
+     * @return the slot
+     */
+    public int home(int round, int i) {
+        return Match.home(pair(round, i));
+    }
+
+    /**
+     * Slot that plays away in a match of a round.
+     * @param round round, from 1 to getRoundCount()
+     * @param i position of the match in the round, from 0 to m/2-1
+     * @return the slot
+     */
+    public int away(int round, int i) {
+        return Match.away(pair(round, i));
+    }
+
+    /**
+     * A match of a round, building its leg if needed.
+     * @param round round, from 1 to getRoundCount()
+     * @param i position of the match in the round
+     * @return the packed pair of slots
+     */
+    private long pair(int round, int i) {
+        if (round < 1 || round > getRoundCount())
+            throw new IndexOutOfBoundsException("No such round: " + round);
+        if (i < 0 || i >= size / 2)
+            throw new IndexOutOfBoundsException("No such match: " + i);
+        int leg = (round - 1) / (size - 1);
+        long[] x = leg(leg, false);
+        if (x == null) {
+            x = new long[size / 2];
+            buildRound(round, oracle, x, 0);
+            return x[i];
+        }
+        return x[((round - 1) - leg * (size - 1)) * (size / 2) + i];
+    }
+
+    /**
+     * Makes sure the matches of the first legs are built, unless they have
+     * more than MAX_LEG matches.
+     * @param count amount of legs, 1 or 2
+     * @param parallel true if they should be built using every core
+     */
+    void buildLegs(int count, boolean parallel) {
+        for (int leg = 0; leg < count; leg++) leg(leg, parallel);
+    }
+
+    /**
+     * Copies the matches of a round (packed pairs of slots, in the order the
+     * matrix is walked row after row). If its leg wasn't built, they're
+     * computed now from the oracle, in O(m).
+     * @param round round, from 1 to getRoundCount()
+     * @param into array of at least m/2 pairs (filled)
+     */
+    void round(int round, long[] into) {
+        int half = size / 2;
+        int leg = (round - 1) / (size - 1);
+        long[] x = legs.get(leg);
+        if (x != null) {
+            System.arraycopy(x, ((round - 1) - leg * (size - 1)) * half, into, 0, half);
+        } else {
+            buildRound(round, oracle, into, 0);
+        }
+    }
+
+    /**
+     * Gets the matches of a leg, building them if needed.
+     * @param leg 0 or 1
+     * @param parallel true if they should be built using every core
+     * @return the matches, null if a leg has more than MAX_LEG matches
+     */
+    private long[] leg(int leg, boolean parallel) {
+        long[] x = legs.get(leg);
+        if (x == null && (long) (size - 1) * (size / 2) <= MAX_LEG) {
+            synchronized (legs) {
+                x = legs.get(leg);
+                if (x == null) {
+                    x = buildLeg(leg, parallel);
+                    legs.set(leg, x);
+                }
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Builds the matches of a leg, at most MAX_LEG of them.
+     * The matrix is walked only once, each cell of the leg goes straight to
+     * the round its value points to.
+     * @param leg 0 or 1
+     * @param parallel true if each round should be built by its own task
+     * @return the matches
+     */
+    private long[] buildLeg(int leg, boolean parallel) {
+        final int m = size;
+        final int k = m - 1;
+        final int first = leg * k;
+        final long[] x = new long[(int) ((long) k * (m/2))];
+        Probe probe = Probe.start(FixtureListener.Phase.MATCHDATES);
+        if (parallel) {
+            /* each task fills its own round, so nothing is shared; the
+            oracle finds the matches of a round in O(n) instead of
+            scanning the matrix */
+            IntStream.range(0, k).parallel().forEach(i ->
+                    buildRound(first + i + 1, oracle, x, i * (m/2)));
+            if (probe != null) probe.end(m, x.length);
+            return x;
+        }
+        int[] filled = new int[k];
+        int value;
+        for (int f = 0; f < m; f++) {
+            for (int c = 0; c < m; c++) {
+                value = pattern.get(f, c) - first;
+                if (value < 1 || value > k) continue;
+                x[(value-1) * (m/2) + filled[value-1]++] = Match.pack(f, c);
+            }
+        }
+        if (probe != null) probe.end(m, x.length);
+        return x;
+    }
+
+    /**
+     * Builds the matches of a round: every slot looks up its opponent and
+     * the home slot adds the match, so the matches come in the same order
+     * as when the matrix is walked row after row.
+     * @param round round, from 1
+     * @param pattern oracle of the pattern
+     * @param into array of packed pairs (filled)
+     * @param offset position of the first pair in the array
+     */
+    private static void buildRound(int round, ScheduleMatrix pattern, long[] into, int offset) {
+        int m = pattern.size();
+        int c;
+        for (int f = 0; f < m; f++) {
+            c = pattern.opponentOf(f, round);
+            if (c >= 0 && pattern.get(f, c) == round)
+                into[offset++] = Match.pack(f, c);
+        }
+    }
+
+    /**
+     * Fills the matrix with the pattern.
+     * @param matrix an empty matrix
+     */
+    private static void fill(ScheduleMatrix matrix) {
+        int m = matrix.size();
+        for (int i = 0; i < m; i++) {
+            matrix.set(i, i, 0); // the main diagonal is set to ZERO
+        }
+        for (int f = 1; f < m; f++) {
+            matrix.set(f, 0, f*2); // all even numbers in the first column
+        }
+        /* Filling in the lower left half of the matrix */
+        for (int c = 1; c < m-1; c++) {
+            for (int f = c+1; f < m; f++) {
+                if (c == 1) {
+                    matrix.set(f, c, f + 1); // all ordered numbers in second column
+                }
+                else
+                {
+                    matrix.set(f, c, matrix.get(f-1, c-1) + 2);
+                    // equal to the inmediately superior left value plus 2
+                }
+            }
+        }
+        /* Filling the upper right half of the matrix. */
+        int lower;
+        for (int f = 0; f < m -1; f++) {
+            for (int c = f+1; c < m; c++) {
+                lower = matrix.get(c, f);
+                matrix.set(f, c, lower > (m-1) ? lower - (m-1) : lower + (m-1));
+            }
+        }
+        
+        /* Switch half of the home/away matches (all evens) */
+        for (int c = 1; c < m-1; c++) {
+            for (int f = c+1; f < m; f++) {
+                if (matrix.get(f, c) % 2 == 0) {
+                    matrix.swap(f, c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Same pattern as fill(), split across the common ForkJoinPool.
+     * Each pass works on cells no other task of the same pass touches:
+     * - lower half: one task per diagonal (each value is the one above and
+     *   to the left plus 2, so a diagonal only depends on itself)
+     * - upper half: one task per row (only reads the finished lower half)
+     * - switch: one task per row of the lower half (cell (f,c) and its
+     *   mirror (c,f) belong to row f only)
+     * The resulting matrix is identical to the one built sequentially.
+     * @param matrix an empty matrix
+     */
+    private static void fillParallel(ScheduleMatrix matrix) {
+        final int m = matrix.size();
+        /* Filling in the lower left half of the matrix (and the diagonal) */
+        IntStream.range(0, m).parallel().forEach(d -> {
+            if (d == 0) {
+                for (int i = 0; i < m; i++) matrix.set(i, i, 0);
+                return;
+            }
+            matrix.set(d, 0, d*2);
+            for (int c = 1, f = d+1; f < m; c++, f++) {
+                matrix.set(f, c, c == 1 ? f + 1 : matrix.get(f-1, c-1) + 2);
+            }
+        });
+        /* Filling the upper right half of the matrix. */
+        IntStream.range(0, m-1).parallel().forEach(f -> {
+            int lower;
+            for (int c = f+1; c < m; c++) {
+                lower = matrix.get(c, f);
+                matrix.set(f, c, lower > (m-1) ? lower - (m-1) : lower + (m-1));
+            }
+        });
+        /* Switch half of the home/away matches (all evens) */
+        IntStream.range(2, m).parallel().forEach(f -> {
+            for (int c = 1; c < f; c++) {
+                if (matrix.get(f, c) % 2 == 0) {
+                    matrix.swap(f, c);
+                }
+            }
+        });
+    }
+
+    /**
+     * Fills the matrix with the circle pattern of CircleOracle, one round
+     * at a time: every match is written once, nothing is computed twice and
+     * nothing is allocated. A round only writes the cells of its own
+     * matches, so in parallel mode the rounds are split across the common
+     * ForkJoinPool.
+     * @param matrix an empty matrix
+     * @param parallel true if every core should be used
+     */
+    private static void fillCircle(ScheduleMatrix matrix, boolean parallel) {
+        final int m = matrix.size();
+        final CircleOracle circle = new CircleOracle(m);
+        for (int i = 0; i < m; i++) {
+            matrix.set(i, i, 0); // the main diagonal is set to ZERO
+        }
+        if (parallel) {
+            IntStream.range(0, m-1).parallel().forEach(r -> circle.fill(matrix, r));
+            return;
+        }
+        for (int r = 0; r < m-1; r++) {
+            circle.fill(matrix, r);
+        }
+    }
+}
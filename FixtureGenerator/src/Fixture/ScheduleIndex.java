@@ -0,0 +1,113 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.Arrays;
+
+/**
+ * Index of the season of every team of a Fixture: for each team, its
+ * opponent on each matchdate and one bit per matchdate it plays at home.
+ * Everything is kept in primitive arrays, one row per team, so the opponent
+ * of a team on a matchdate is a single array read and the whole season of a
+ * team is a single row.
+ * Built from the packed matches in O(total matches); instances are never
+ * changed, the Fixture builds a new one once the old one is out of date.
+ * @author Haiko
+ */
+final class ScheduleIndex {
+
+    /**
+     * Opponent (id) of each team on each matchdate: opponents[t][k-1],
+     * TeamDictionary.FREE if the team doesn't play.
+     */
+    private final int[][] opponents;
+    /**
+     * Home bits of each team: bit (k-1) of homes[t] is set if team t plays
+     * at home on matchdate k.
+     */
+    private final long[][] homes;
+
+    /**
+     * Builds the index of a Fixture.
+     * @param fixture a generated Fixture
+     */
+    ScheduleIndex(Fixture fixture) {
+        Probe probe = Probe.start(FixtureListener.Phase.INDEX);
+        int n = fixture.getTeamCount();
+        int count = fixture.getMatchdateCount();
+        opponents = new int[n][count];
+        homes = new long[n][(count + 63) >>> 6];
+        for (int[] row : opponents) Arrays.fill(row, TeamDictionary.FREE);
+        long[] round = new long[fixture.getMatchesPerMatchdate()];
+        int home, away;
+        long indexed = 0;
+        for (int k = 1; k <= count; k++) {
+            fixture.pairs(k, round);
+            for (long pair : round) {
+                home = fixture.teamAt(Match.home(pair), k);
+                away = fixture.teamAt(Match.away(pair), k);
+                if (home == TeamDictionary.FREE || away == TeamDictionary.FREE) continue;
+                opponents[home][k-1] = away;
+                opponents[away][k-1] = home;
+                homes[home][(k-1) >>> 6] |= 1L << (k-1);
+                indexed++;
+            }
+        }
+        if (probe != null) probe.end(round.length * 2, indexed);
+    }
+
+    /**
+     * Opponent of a team on a matchdate.
+     * @param team id of the team
+     * @param k number of the matchdate, from 1
+     * @return id of the opponent, TeamDictionary.FREE if the team is free
+     */
+    int opponent(int team, int k) {
+        return opponents[team][k-1];
+    }
+
+    /**
+     * Checks if a team plays at home on a matchdate.
+     * @param team id of the team
+     * @param k number of the matchdate, from 1
+     * @return true if it plays at home (false if it's free)
+     */
+    boolean isHome(int team, int k) {
+        return (homes[team][(k-1) >>> 6] & 1L << (k-1)) != 0;
+    }
+
+    /**
+     * Opponents of a team on every matchdate (the row itself, not a copy).
+     * @param team id of the team
+     * @return the opponents
+     */
+    int[] opponents(int team) {
+        return opponents[team];
+    }
+
+    /**
+     * Home bits of a team (the row itself, not a copy).
+     * @param team id of the team
+     * @return the bits
+     */
+    long[] homes(int team) {
+        return homes[team];
+    }
+}
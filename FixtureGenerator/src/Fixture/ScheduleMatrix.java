@@ -0,0 +1,121 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+/**
+ * Square matrix used by Fixture to store the pattern of matches.
+ * Cell (f,c) holds the number of the matchdate on which team f plays at home
+ * against team c, the main diagonal holds ZERO.
+ * Implementations store the cells in flat primitive arrays, so no Integer
+ * objects are created no matter how many teams there are.
+ * @author Haiko
+ */
+public abstract class ScheduleMatrix {
+
+    /**
+     * Amount of rows (and columns) of the matrix.
+     */
+    protected final int size;
+
+    /**
+     * Constructor
+     * @param size amount of rows (and columns)
+     */
+    protected ScheduleMatrix (int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("Unsupported matrix size: " + size);
+        this.size = size;
+    }
+
+    /**
+     * Amount of cells of a matrix stored in a single flat array.
+     * @param size amount of rows (and columns)
+     * @return size * size
+     * @throws IllegalArgumentException if the cells don't fit in an array
+     */
+    protected static int cells (int size) {
+        if (size < 0 || (long) size * size > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Unsupported matrix size: " + size);
+        return size * size;
+    }
+
+    /**
+     * Creates the most compact matrix able to hold every matchdate number of
+     * a double round tournament with size teams.
+     * @param size amount of rows (and columns)
+     * @return an empty matrix
+     */
+    public static ScheduleMatrix allocate (int size) {
+        if (2 * (size - 1) <= Character.MAX_VALUE)
+            return new CharScheduleMatrix(size);
+        return new IntScheduleMatrix(size);
+    }
+
+    /**
+     * Amount of rows (and columns) of the matrix.
+     * @return size
+     */
+    public int size () {
+        return size;
+    }
+
+    /**
+     * Gets the value of a cell.
+     * @param f row
+     * @param c column
+     * @return matchdate number, ZERO on the main diagonal
+     */
+    public abstract int get (int f, int c);
+
+    /**
+     * Sets the value of a cell.
+     * @param f row
+     * @param c column
+     * @param value matchdate number
+     */
+    public abstract void set (int f, int c, int value);
+
+    /**
+     * The team that plays against a team on a matchdate.
+     * The row and column of the team are scanned, so this takes linear time;
+     * implementations that know their pattern may do better.
+     * @param team team (row)
+     * @param matchdate matchdate number
+     * @return the opponent, -1 if the team doesn't play on that matchdate
+     */
+    public int opponentOf (int team, int matchdate) {
+        for (int c = 0; c < size; c++) {
+            if (c != team && (get(team, c) == matchdate || get(c, team) == matchdate))
+                return c;
+        }
+        return -1;
+    }
+
+    /**
+     * Swaps the values of cells (f,c) and (c,f).
+     * @param f row
+     * @param c column
+     */
+    public void swap (int f, int c) {
+        int temp = get(f, c);
+        set(f, c, get(c, f));
+        set(c, f, temp);
+    }
+}
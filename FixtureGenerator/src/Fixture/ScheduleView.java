@@ -0,0 +1,54 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+/**
+ * Read-only view of who plays whom on every matchdate, by team id (see
+ * TeamDictionary). Constraints are checked against it.
+ * @author Haiko
+ */
+public interface ScheduleView {
+
+    /**
+     * @return amount of matchdates
+     */
+    int getMatchdateCount();
+
+    /**
+     * @return amount of teams (the free team not included)
+     */
+    int getTeamCount();
+
+    /**
+     * Opponent of a team on a matchdate.
+     * @param team id of the team
+     * @param k number of the matchdate, from 1
+     * @return id of the opponent, TeamDictionary.FREE if the team is free
+     */
+    int opponent(int team, int k);
+
+    /**
+     * Checks if a team plays at home on a matchdate.
+     * @param team id of the team
+     * @param k number of the matchdate, from 1
+     * @return true if it plays at home (false if it's free)
+     */
+    boolean isHome(int team, int k);
+}
@@ -0,0 +1,444 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Swiss-system tournament: every round pairs players with the same (or the
+ * closest) score who haven't met yet, so the amount of rounds can be far
+ * smaller than in a round robin. Rounds can't be generated beforehand: each
+ * one is paired once the results of the previous one are in
+ * (pairNextRound(), setResult()).
+ * Players are given in rating order (the first one is the strongest); within
+ * the same score the higher rated player ranks first, and each player is
+ * paired with the next one down they haven't played yet (Monrad pairing).
+ * If there's an odd number of players, the lowest ranked player who hasn't
+ * been free yet is free, which counts as a win.
+ * Pairing a round costs O(n * rounds): players are put in score groups
+ * with a counting sort, the unpaired ones are a linked list in ranking
+ * order, and checking if two players met is one lookup in a hash set of
+ * the pairs that met, so each player skips at most the rounds - 1 players
+ * they met. Each rematch the greedy pairing leaves costs O(n) more to
+ * repair (see repair()).
+ * The rounds are given as Matchdates, just like a Fixture's.
+ * @author Haiko
+ */
+public class SwissFixture implements Iterable<Matchdate> {
+
+    /**
+     * Result of a match.
+     */
+    public enum Result {
+        HOME_WIN, DRAW, AWAY_WIN
+    }
+
+    /**
+     * Dictionary of the players.
+     */
+    private final TeamDictionary players;
+    /**
+     * Amount of rounds of the tournament.
+     */
+    private final int rounds;
+    /**
+     * Score of each player, in half points.
+     */
+    private final int[] score;
+    /**
+     * Pairs of players that met, an open addressing hash set of
+     * pair(p, q) (0 if the slot is empty).
+     */
+    private final long[] met;
+    /**
+     * True for each player who was already free.
+     */
+    private final boolean[] free;
+    /**
+     * Matches played at home by each player.
+     */
+    private final int[] homes;
+    /**
+     * Matches of each round paired so far: packed pairs of player ids (see
+     * Match.pack()), the away id is FREE when the home player is free.
+     */
+    private final long[][] pairings;
+    /**
+     * Result of each match of each round, null until it's set.
+     */
+    private final Result[][] results;
+    /**
+     * Amount of rounds paired.
+     */
+    private int paired;
+
+    /**
+     * Constructor
+     * @param players names of the players, in rating order
+     * @param rounds amount of rounds
+     * @param freeDefault name of the free player
+     */
+    public SwissFixture(String[] players, int rounds, String freeDefault) {
+        if (players.length < 2)
+            throw new IllegalArgumentException("At least 2 players are needed");
+        if (rounds < 1)
+            throw new IllegalArgumentException("Amount of rounds must be positive: " + rounds);
+        int n = players.length;
+        this.players = new TeamDictionary(players, freeDefault);
+        this.rounds = rounds;
+        score = new int[n];
+        /* at most n/2 pairs a round, the table is kept at most half full */
+        long pairs = (long) (n / 2) * rounds;
+        if (pairs > 1 << 29)
+            throw new IllegalArgumentException("Too many players and rounds: " + n
+                    + " players, " + rounds + " rounds");
+        met = new long[Integer.highestOneBit((int) pairs) << 2];
+        free = new boolean[n];
+        homes = new int[n];
+        pairings = new long[rounds][];
+        results = new Result[rounds][];
+    }
+
+    /**
+     * Constructor, the free player is "Free".
+     * @param players names of the players, in rating order
+     * @param rounds amount of rounds
+     */
+    public SwissFixture(String[] players, int rounds) {
+        this(players, rounds, "Free");
+    }
+
+    /**
+     * @return amount of rounds of the tournament
+     */
+    public int getRoundCount() {
+        return rounds;
+    }
+
+    /**
+     * @return amount of rounds paired so far
+     */
+    public int getMatchdateCount() {
+        return paired;
+    }
+
+    /**
+     * @return dictionary of the players
+     */
+    public TeamDictionary getPlayers() {
+        return players;
+    }
+
+    /**
+     * Pairs the next round.
+     * @return the round
+     * @throws IllegalStateException if every round was paired, or a result
+     * of the last round is missing
+     */
+    public Matchdate pairNextRound() {
+        if (paired == rounds)
+            throw new IllegalStateException("Every round was already paired");
+        if (paired > 0) {
+            Result[] last = results[paired - 1];
+            for (int i = 0; i < last.length; i++) {
+                if (last[i] == null && Match.away(pairings[paired - 1][i]) != TeamDictionary.FREE)
+                    throw new IllegalStateException("Missing result of match " + (i+1)
+                            + " of round " + paired);
+            }
+        }
+        int n = score.length;
+        int[] order = ranking();
+
+        /* unpaired players, a doubly linked list in ranking order */
+        int[] next = new int[n + 1], prev = new int[n + 1];
+        int head = n; // sentinel
+        int last = head;
+        for (int p : order) {
+            next[last] = p;
+            prev[p] = last;
+            last = p;
+        }
+        next[last] = head;
+        prev[head] = last;
+
+        long[] round = new long[(n + 1) / 2];
+        int matches = 0;
+        if (n % 2 != 0) {
+            /* the lowest ranked player who wasn't free yet */
+            int free = -1;
+            for (int i = n - 1; i >= 0 && free < 0; i--) {
+                if (!this.free[order[i]]) free = order[i];
+            }
+            if (free < 0) free = order[n - 1];
+            unlink(free, next, prev);
+            round[round.length - 1] = Match.pack(free, TeamDictionary.FREE);
+        }
+        while (next[head] != head) {
+            int p = next[head];
+            unlink(p, next, prev);
+            int q = next[p];
+            while (q != head && met(p, q)) q = next[q];
+            if (q == head) q = next[head]; // no one left they haven't met
+            unlink(q, next, prev);
+            round[matches++] = colors(p, q);
+        }
+        repair(round, matches);
+
+        Result[] result = new Result[round.length];
+        for (int i = 0; i < round.length; i++) {
+            int home = Match.home(round[i]), away = Match.away(round[i]);
+            if (away == TeamDictionary.FREE) {
+                free[home] = true;
+                score[home] += 2;
+            } else {
+                meet(home, away);
+                homes[home]++;
+            }
+        }
+        pairings[paired] = round;
+        results[paired] = result;
+        paired++;
+        return matchdate(paired);
+    }
+
+    /**
+     * Players in ranking order: by score, then by rating. Counting sort by
+     * score, so it takes O(n).
+     * @return ids of the players
+     */
+    private int[] ranking() {
+        int n = score.length;
+        int max = 0;
+        for (int s : score) max = Math.max(max, s);
+        int[] start = new int[max + 2];
+        for (int s : score) start[max - s + 1]++;
+        for (int i = 1; i < start.length; i++) start[i] += start[i-1];
+        int[] order = new int[n];
+        for (int p = 0; p < n; p++) order[start[max - score[p]]++] = p;
+        return order;
+    }
+
+    /**
+     * Key of a pair of players in the hash set, the same either way round
+     * and never 0.
+     * @param p player
+     * @param q another player
+     * @return the key
+     */
+    private static long pair(int p, int q) {
+        return Match.pack(Math.min(p, q), Math.max(p, q) + 1);
+    }
+
+    /**
+     * Slot of the hash set where a key is, or where it would go.
+     * @param key
+     * @return the slot
+     */
+    private int slot(long key) {
+        int mask = met.length - 1;
+        int i = (int) ((key * 0x9E3779B97F4A7C15L) >>> 33) & mask;
+        while (met[i] != 0 && met[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * Notes that two players met.
+     * @param p player
+     * @param q another player
+     */
+    private void meet(int p, int q) {
+        long key = pair(p, q);
+        met[slot(key)] = key;
+    }
+
+    /**
+     * Checks if two players already met, in O(1).
+     * @param p player
+     * @param q another player
+     * @return true if they met
+     */
+    private boolean met(int p, int q) {
+        long key = pair(p, q);
+        return met[slot(key)] == key;
+    }
+
+    /**
+     * Takes a player out of the list of unpaired players.
+     * @param p player
+     * @param next
+     * @param prev
+     */
+    private static void unlink(int p, int[] next, int[] prev) {
+        next[prev[p]] = next[p];
+        prev[next[p]] = prev[p];
+    }
+
+    /**
+     * Match of two players, the one who played fewer matches at home plays
+     * at home (the higher ranked one if it's a tie).
+     * @param p higher ranked player
+     * @param q lower ranked player
+     * @return the packed pair
+     */
+    private long colors(int p, int q) {
+        return homes[q] < homes[p] ? Match.pack(q, p) : Match.pack(p, q);
+    }
+
+    /**
+     * Removes the rematches the greedy pairing couldn't avoid (they only
+     * happen among the last players): each one is swapped with a match of
+     * the same round, from the last one up, so the four players all meet
+     * someone new. A rematch is only kept if no such swap exists, which
+     * can only happen when there are almost as many rounds as players.
+     * @param round matches of the round
+     * @param matches amount of matches (the free player not included)
+     */
+    private void repair(long[] round, int matches) {
+        for (int i = matches - 1; i >= 0; i--) {
+            int p = Match.home(round[i]), q = Match.away(round[i]);
+            if (!met(p, q)) continue;
+            for (int j = matches - 1; j >= 0; j--) {
+                if (j == i) continue;
+                int a = Match.home(round[j]), b = Match.away(round[j]);
+                if (!met(p, a) && !met(q, b)) {
+                    round[i] = colors(p, a);
+                    round[j] = colors(q, b);
+                    break;
+                }
+                if (!met(p, b) && !met(q, a)) {
+                    round[i] = colors(p, b);
+                    round[j] = colors(q, a);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the result of a match.
+     * @param k round, from 1
+     * @param i position of the match in the round, from 0
+     * @param result the result
+     * @throws IllegalStateException if the round isn't the last one paired
+     */
+    public void setResult(int k, int i, Result result) {
+        if (k != paired)
+            throw new IllegalStateException("Only results of round " + paired + " can be set");
+        long pair = pairings[k-1][i];
+        int home = Match.home(pair), away = Match.away(pair);
+        if (away == TeamDictionary.FREE)
+            throw new IllegalArgumentException("The player is free");
+        Result old = results[k-1][i];
+        if (old != null) {
+            score[home] -= points(old, true);
+            score[away] -= points(old, false);
+        }
+        score[home] += points(result, true);
+        score[away] += points(result, false);
+        results[k-1][i] = result;
+    }
+
+    /**
+     * Half points of a result.
+     * @param result
+     * @param home true for the home player
+     * @return the half points
+     */
+    private static int points(Result result, boolean home) {
+        switch (result) {
+            case HOME_WIN: return home ? 2 : 0;
+            case AWAY_WIN: return home ? 0 : 2;
+            default: return 1;
+        }
+    }
+
+    /**
+     * Score of a player.
+     * @param player name of the player
+     * @return the score (1 per win, 0.5 per draw)
+     */
+    public double getScore(String player) {
+        int id = players.idOf(player);
+        if (id == TeamDictionary.FREE)
+            throw new IllegalArgumentException("No such player: " + player);
+        return score[id] / 2.0;
+    }
+
+    /**
+     * Players by score, then by rating.
+     * @return names of the players
+     */
+    public String[] standings() {
+        int[] order = ranking();
+        String[] x = new String[order.length];
+        for (int i = 0; i < order.length; i++) x[i] = players.name(order[i]);
+        return x;
+    }
+
+    /**
+     * Gets a round as a Matchdate, the free player (if any) last.
+     * @param k round, from 1 to getMatchdateCount()
+     * @return the Matchdate, a new one on every call
+     */
+    public Matchdate matchdate(int k) {
+        if (k < 1 || k > paired)
+            throw new IndexOutOfBoundsException("No such round: " + k);
+        long[] round = pairings[k-1];
+        Matchdate date = new Matchdate(k, round.length);
+        for (long pair : round) {
+            int home = Match.home(pair), away = Match.away(pair);
+            date.addMatch(away == TeamDictionary.FREE ? new Match(players.name(home))
+                    : new Match(players.name(home), players.name(away)));
+        }
+        return date;
+    }
+
+    /**
+     * Iterates over the rounds paired so far.
+     * @return iterator over the Matchdates
+     */
+    @Override
+    public Iterator<Matchdate> iterator() {
+        return new Iterator<Matchdate>() {
+            private int next = 1;
+
+            @Override
+            public boolean hasNext() {
+                return next <= paired;
+            }
+
+            @Override
+            public Matchdate next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return matchdate(next++);
+            }
+        };
+    }
+
+    /**
+     * Creates a string from every round paired so far.
+     * @return
+     */
+    @Override
+    public String toString() {
+        return FixtureWriter.render(this);
+    }
+}
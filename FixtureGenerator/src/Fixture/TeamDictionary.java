@@ -0,0 +1,114 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary of the teams of a Fixture. Internally a team is just its index
+ * (id) in the dictionary, names are only looked up when something is shown
+ * to the user. The free team is not a team: it's the id FREE.
+ * Instances are immutable.
+ * @author Haiko
+ */
+public final class TeamDictionary {
+
+    /**
+     * Id of the free team.
+     */
+    public static final int FREE = -1;
+
+    /**
+     * Names of the teams, by id.
+     */
+    private final String[] names;
+    /**
+     * Name of the free team.
+     */
+    private final String freeDefault;
+    /**
+     * Id of each name, built the first time a team is looked up by name.
+     */
+    private volatile Map<String, Integer> ids;
+
+    /**
+     * Constructor
+     * @param names names of the teams (copied), the id of a team is its
+     * position in the array
+     * @param freeDefault name of the free team
+     */
+    public TeamDictionary (String[] names, String freeDefault) {
+        this.names = names.clone();
+        this.freeDefault = freeDefault;
+    }
+
+    /**
+     * @return amount of teams (the free team not included)
+     */
+    public int size () {
+        return names.length;
+    }
+
+    /**
+     * Name of a team.
+     * @param id id of the team, or FREE
+     * @return the name (freeDefault for FREE)
+     */
+    public String name (int id) {
+        return id == FREE ? freeDefault : names[id];
+    }
+
+    /**
+     * @return name of the free team
+     */
+    public String getFreeDefault () {
+        return freeDefault;
+    }
+
+    /**
+     * A dictionary with one more team, the ids of the other teams don't
+     * change.
+     * @param name name of the new team, its id is size()
+     * @return the new dictionary
+     */
+    public TeamDictionary with (String name) {
+        String[] x = Arrays.copyOf(names, names.length + 1);
+        x[names.length] = name;
+        return new TeamDictionary(x, freeDefault);
+    }
+
+    /**
+     * Id of a team.
+     * @param name name of the team
+     * @return the id, FREE if there's no such team
+     */
+    public int idOf (String name) {
+        Map<String, Integer> map = ids;
+        if (map == null) {
+            map = new HashMap<>(names.length * 2);
+            for (int i = names.length - 1; i >= 0; i--) map.put(names[i], i);
+            ids = map;
+        }
+        Integer id = map.get(name);
+        return id == null ? FREE : id;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+/**
+ * The season of one team: its opponent on every matchdate and whether it
+ * plays at home. Given by Fixture.scheduleOf(), it's a copy, so it doesn't
+ * change when the Fixture does.
+ * @author Haiko
+ */
+public final class TeamSchedule {
+
+    /**
+     * Id of the team.
+     */
+    private final int team;
+    /**
+     * Dictionary the ids belong to.
+     */
+    private final TeamDictionary teams;
+    /**
+     * Opponent (id) on each matchdate, TeamDictionary.FREE if free.
+     */
+    private final int[] opponents;
+    /**
+     * One bit per matchdate played at home.
+     */
+    private final long[] homes;
+
+    /**
+     * Constructor
+     * @param team id of the team
+     * @param teams dictionary of the teams
+     * @param opponents opponents by matchdate (copied)
+     * @param homes home bits (copied)
+     */
+    TeamSchedule(int team, TeamDictionary teams, int[] opponents, long[] homes) {
+        this.team = team;
+        this.teams = teams;
+        this.opponents = opponents.clone();
+        this.homes = homes.clone();
+    }
+
+    /**
+     * @return name of the team
+     */
+    public String getTeam() {
+        return teams.name(team);
+    }
+
+    /**
+     * @return amount of matchdates
+     */
+    public int getMatchdateCount() {
+        return opponents.length;
+    }
+
+    /**
+     * Opponent on a matchdate.
+     * @param k number of the matchdate, from 1
+     * @return name of the opponent, null if the team is free
+     */
+    public String opponent(int k) {
+        int id = opponentId(k);
+        return id == TeamDictionary.FREE ? null : teams.name(id);
+    }
+
+    /**
+     * Opponent on a matchdate, as an id of the dictionary of the Fixture.
+     * @param k number of the matchdate, from 1
+     * @return id of the opponent, TeamDictionary.FREE if the team is free
+     */
+    public int opponentId(int k) {
+        if (k < 1 || k > opponents.length)
+            throw new IndexOutOfBoundsException("No such matchdate: " + k);
+        return opponents[k-1];
+    }
+
+    /**
+     * @param k number of the matchdate, from 1
+     * @return true if the team plays at home
+     */
+    public boolean isHome(int k) {
+        opponentId(k);
+        return (homes[(k-1) >>> 6] & 1L << (k-1)) != 0;
+    }
+
+    /**
+     * @param k number of the matchdate, from 1
+     * @return true if the team doesn't play
+     */
+    public boolean isFree(int k) {
+        return opponentId(k) == TeamDictionary.FREE;
+    }
+
+    /**
+     * Convert the known data to a string, one matchdate per line.
+     * Example:
+     * 1  Germany (home)
+     * 2  France (away)
+     * 3  Free
+     * @return
+     */
+    @Override
+    public String toString() {
+        StringBuilder x = new StringBuilder(getTeam()).append(FixtureWriter.LINE_SEPARATOR);
+        for (int k = 1; k <= opponents.length; k++) {
+            x.append(k).append("  ");
+            if (isFree(k)) x.append(teams.getFreeDefault());
+            else x.append(opponent(k)).append(isHome(k) ? " (home)" : " (away)");
+            x.append(FixtureWriter.LINE_SEPARATOR);
+        }
+        return x.toString();
+    }
+}
@@ -18,6 +18,7 @@
  */
 
 import Fixture.Fixture;
+import Fixture.FixtureWriter;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -44,7 +45,7 @@ public class UseFixture {
         String file = "D:\\conmebol.txt";
 
         try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
-            out.println(liga);
+            new FixtureWriter(out).write(liga).newLine().flush();
         } catch (Exception e)
         {
             // do nothing
@@ -0,0 +1,79 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of BinaryFixtureReader.
+ * @author Haiko
+ */
+class BinaryFixtureReaderTest {
+
+    /**
+     * A file far bigger than the budget reads the same as one mapped whole,
+     * in any order, and never holds more windows than the budget allows.
+     * @param dir
+     * @throws IOException
+     */
+    @Test
+    void randomAccessWithATinyBudget (@TempDir Path dir) throws IOException {
+        String[] teams = new String[301];
+        for (int i = 0; i < teams.length; i++) teams[i] = "Team" + i;
+        Fixture fixture = new Fixture(teams, "Free", true, 3);
+        Path path = dir.resolve("fixture.bin");
+        BinaryFixtureWriter.write(fixture, path);
+        try (BinaryFixtureReader whole = BinaryFixtureReader.open(path);
+                BinaryFixtureReader tiny = BinaryFixtureReader.open(path, 8192)) {
+            int n = tiny.getTeamCount(), k = tiny.getMatchdateCount();
+            for (int t = 0; t < n; t++) {
+                for (int d = 1; d <= k; d++) {
+                    assertEquals(whole.opponent(t, d), tiny.opponent(t, d));
+                    assertEquals(whole.isHome(t, d), tiny.isHome(t, d));
+                }
+            }
+            Random random = new Random(1);
+            for (int i = 0; i < 200000; i++) {
+                int t = random.nextInt(n), d = 1 + random.nextInt(k);
+                assertEquals(whole.opponent(t, d), tiny.opponent(t, d));
+                assertEquals(whole.isHome(t, d), tiny.isHome(t, d));
+            }
+            for (int d = 1; d <= k; d += 37) {
+                assertEquals(fixture.matchdate(d).toString(), tiny.matchdate(d).toString());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            FileWindows file = new FileWindows(channel, 8192);
+            Random random = new Random(2);
+            for (int i = 0; i < 10000; i++) file.get((long) (random.nextDouble() * Files.size(path)));
+            assertTrue(file.getWindowCount() * (long) file.getWindowSize() <= 8192);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of FixtureBatch.
+ * @author Haiko
+ */
+class FixtureBatchTest {
+
+    /**
+     * The batch gives the Fixtures its seeds would build, in a list that
+     * can't be changed, and they read the same from many threads at once.
+     * @throws Exception
+     */
+    @Test
+    void readOnlyResults () throws Exception {
+        List<String[]> tournaments = new ArrayList<>();
+        for (int d = 0; d < 50; d++) {
+            String[] teams = new String[4 + d % 9];
+            for (int i = 0; i < teams.length; i++) teams[i] = "D" + d + "T" + i;
+            tournaments.add(teams);
+        }
+        FixtureOptions options = new FixtureOptions();
+        FixtureBatch batch = new FixtureBatch(options);
+        List<FixtureView> views = batch.generate(tournaments, 7).join();
+        long[] seeds = FixtureBatch.seeds(7, tournaments.size());
+        List<String> expected = new ArrayList<>();
+        for (int d = 0; d < tournaments.size(); d++) {
+            expected.add(new Fixture(tournaments.get(d), options, seeds[d]).toString());
+        }
+        assertThrows(UnsupportedOperationException.class, () -> views.set(0, views.get(1)));
+        assertEquals(expected, batch.stream(tournaments, 7).map(FixtureView::toString).toList());
+        assertEquals(expected.get(3), views.get(3).toFixture().toString());
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> readers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                readers.add(pool.submit(() -> views.stream().map(FixtureView::toString).toList()));
+            }
+            for (Future<List<String>> reader : readers) assertEquals(expected, reader.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of FixtureCache.
+ * @author Haiko
+ */
+class FixtureCacheTest {
+
+    /**
+     * Options of the Fixtures cached.
+     */
+    private static final FixtureOptions OPTIONS = new FixtureOptions("Free", true);
+
+    /**
+     * Every Fixture weighs something, even the smallest ones, so they're
+     * evicted like any other.
+     */
+    @Test
+    void smallFixturesAreEvicted () {
+        long weight = FixtureCache.weigh(new Fixture(new String[] {"A", "B"}, OPTIONS, 0));
+        FixtureCache cache = new FixtureCache(weight);
+        for (long seed = 0; seed < 10; seed++) {
+            cache.get(new String[] {"A", "B"}, OPTIONS, seed);
+        }
+        assertEquals(1, cache.size());
+        assertEquals(9, cache.getEvictions());
+        assertTrue(weight >= 1);
+    }
+
+    /**
+     * The weight follows the state of a Fixture, not the amount of matches
+     * in its (shared) template, and the total stays under the maximum.
+     */
+    @Test
+    void weightIsThePerFixtureState () {
+        String[] teams = new String[200];
+        for (int i = 0; i < teams.length; i++) teams[i] = "Team " + i;
+        Fixture fixture = new Fixture(teams, OPTIONS, 1);
+        long weight = FixtureCache.weigh(fixture);
+        assertTrue(weight < 200L * 199, "weight " + weight);
+
+        FixtureCache cache = new FixtureCache(weight * 3);
+        for (long seed = 0; seed < 5; seed++) {
+            cache.get(teams, OPTIONS, seed);
+            assertTrue(cache.getWeight() <= cache.getMaxWeight());
+        }
+        assertEquals(3, cache.size());
+        assertSame(cache.get(teams, OPTIONS, 4), cache.getIfPresent(teams, OPTIONS, 4));
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of Fixture.
+ * @author Haiko
+ */
+class FixtureTest {
+
+    /**
+     * @param n amount of teams
+     * @return "T0" to "T(n-1)"
+     */
+    private static String[] teams (int n) {
+        String[] teams = new String[n];
+        for (int i = 0; i < n; i++) teams[i] = "T" + i;
+        return teams;
+    }
+
+    /**
+     * Options with minBreaks, everything else as by default (teams and
+     * matchdates randomized).
+     * @param round two rounds or just one
+     * @return the options
+     */
+    private static FixtureOptions minBreaks (boolean round) {
+        return new FixtureOptions("Free", round, true, true, true, true, false, false, true);
+    }
+
+    /**
+     * Randomizing the matchdates keeps the n-2 breaks of a single round.
+     */
+    @Test
+    void minBreaksSurviveRandomDates () {
+        for (int n : new int[] {4, 10, 100, 1000}) {
+            for (long seed = 0; seed < 10; seed++) {
+                Fixture fixture = new Fixture(teams(n), minBreaks(false), seed);
+                assertEquals(n - 2, fixture.breaks(), n + " teams, seed " + seed);
+            }
+        }
+    }
+
+    /**
+     * Two rounds keep the breaks of the circle order, and the two matches of
+     * a pair are never on matchdates in a row.
+     */
+    @Test
+    void minBreaksOfTwoRounds () {
+        for (int n : new int[] {4, 10, 101}) {
+            Fixture plain = new Fixture(teams(n), new FixtureOptions("Free", true, false, false,
+                    true, true, false, false, true), 1);
+            for (long seed = 0; seed < 10; seed++) {
+                Fixture fixture = new Fixture(teams(n), minBreaks(true), seed);
+                assertEquals(plain.breaks(), fixture.breaks(), n + " teams, seed " + seed);
+                for (int t = 0; t < n; t++) {
+                    TeamSchedule s = fixture.scheduleOf("T" + t);
+                    for (int k = 2; k <= s.getMatchdateCount(); k++) {
+                        assertTrue(s.isFree(k) || s.opponentId(k) != s.opponentId(k - 1),
+                                "T" + t + " meets the same team on matchdates " + (k - 1) + " and " + k);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Above 128 teams (past the cached Integers), every pair still meets
+     * exactly once per leg and each team plays once on every matchdate:
+     * checked by FixtureValidator and again from the rendered matchdates.
+     */
+    @Test
+    void everyPairMeetsOnceAbove128Teams () {
+        for (int n : new int[] {129, 130}) {
+            for (boolean round : new boolean[] {false, true}) {
+                for (boolean materialize : new boolean[] {false, true}) {
+                    Fixture fixture = new Fixture(teams(n), new FixtureOptions("Free", round,
+                            true, true, true, materialize, false), n);
+                    assertEquals(0, FixtureValidator.check(fixture).size());
+                    Set<String> pairs = new HashSet<>();
+                    int frees = 0;
+                    for (int k = 1; k <= fixture.getMatchdateCount(); k++) {
+                        Set<String> playing = new HashSet<>();
+                        for (String line : fixture.matchdate(k).toString().split("\\R")) {
+                            if (line.startsWith("Free: ")) {
+                                assertTrue(playing.add(line.substring(6)), line);
+                                frees++;
+                            } else if (line.contains("  vs.  ")) {
+                                String[] match = line.split("  vs.  ");
+                                assertTrue(playing.add(match[0]) && playing.add(match[1]), line);
+                                String pair = round || match[0].compareTo(match[1]) < 0
+                                        ? match[0] + "-" + match[1] : match[1] + "-" + match[0];
+                                assertTrue(pairs.add(pair), pair + " twice");
+                            }
+                        }
+                        assertEquals(n, playing.size(), "matchdate " + k);
+                    }
+                    int legs = round ? 2 : 1;
+                    assertEquals(legs * n * (n - 1) / 2, pairs.size());
+                    assertEquals(n % 2 == 0 ? 0 : legs * n, frees);
+                }
+            }
+        }
+    }
+
+    /**
+     * A matrix given by newMatrix() is the one filled, and the Fixture is
+     * the same as with the shared template.
+     */
+    @Test
+    void newMatrixIsPluggable () {
+        FixtureOptions options = new FixtureOptions("Free", true, true, true, true, true, false);
+        Fixture shared = new Fixture(teams(11), options, 7);
+        Fixture own = new Fixture(teams(11), options, 7) {
+            @Override
+            protected ScheduleMatrix newMatrix (int m) {
+                return new IntScheduleMatrix(m);
+            }
+        };
+        assertTrue(own.pattern() instanceof IntScheduleMatrix);
+        assertTrue(shared.pattern() instanceof CharScheduleMatrix);
+        assertEquals(shared.toString(), own.toString());
+        assertEquals(0, FixtureValidator.check(own).size());
+    }
+}
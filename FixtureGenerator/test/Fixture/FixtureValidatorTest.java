@@ -0,0 +1,79 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of FixtureValidator.
+ * @author Haiko
+ */
+class FixtureValidatorTest {
+
+    /**
+     * @param n amount of teams
+     * @return "T0" to "T(n-1)"
+     */
+    private static String[] teams (int n) {
+        String[] teams = new String[n];
+        for (int i = 0; i < n; i++) teams[i] = "T" + i;
+        return teams;
+    }
+
+    /**
+     * Fixtures whose legs stay apart (no randomDates, or minBreaks) and
+     * shuffled ones are valid.
+     */
+    @Test
+    void validFixtures () {
+        for (int n : new int[] {4, 7, 12, 31}) {
+            for (int bits = 0; bits < 8; bits++) {
+                FixtureOptions options = new FixtureOptions("Free", true, (bits & 1) != 0,
+                        (bits & 2) != 0, true, true, false, false, (bits & 4) != 0);
+                Fixture fixture = new Fixture(teams(n), options, n + bits);
+                assertEquals(List.of(), FixtureValidator.check(fixture), n + " teams, " + bits);
+            }
+        }
+    }
+
+    /**
+     * A season whose halves aren't single rounds is found, even if every
+     * pair meets once with each one at home: 4 teams playing round 1, its
+     * return round 4 and round 2 in the first half.
+     */
+    @Test
+    void halfThatIsNoSingleRound () {
+        int[] shown = {1, 4, 2, 5, 3, 6};
+        Fixture fixture = new Fixture(teams(4), new FixtureOptions("Free", true, false, false,
+                true, true, false), 1) {
+            @Override
+            void pairs (int k, long[] into) {
+                super.pairs(shown[k - 1], into);
+            }
+        };
+        List<String> problems = FixtureValidator.check(fixture);
+        assertTrue(problems.stream().anyMatch(p -> p.contains("first half")), problems.toString());
+        assertTrue(problems.stream().noneMatch(p -> p.contains("same home")), problems.toString());
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of FixtureWriter.
+ * @author Haiko
+ */
+class FixtureWriterTest {
+
+    /**
+     * A supplementary character split by the end of the buffer is encoded
+     * whole, wherever the split falls.
+     * @throws IOException
+     */
+    @Test
+    void supplementaryCharacterAcrossTheBuffer () throws IOException {
+        for (int pad = 0; pad < 40; pad++) {
+            String name = "x".repeat(pad) + "😀" + "y";
+            Fixture fixture = new Fixture(new String[] {name, "B", "C"},
+                    new FixtureOptions("Free", false, false, false, true, true, false), 1);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (FixtureWriter w = new FixtureWriter(Channels.newChannel(bytes),
+                    StandardCharsets.UTF_8, 16)) {
+                w.write(fixture);
+            }
+            assertEquals(fixture.toString(), bytes.toString(StandardCharsets.UTF_8), "pad " + pad);
+        }
+    }
+
+    /**
+     * RENDER reports the bytes written, to a channel and to an Appendable
+     * alike (counted in UTF-8).
+     * @throws IOException
+     */
+    @Test
+    void renderCountsBytes () throws IOException {
+        Fixture fixture = new Fixture(new String[] {"Köln", "Zürich", "😀", "D"},
+                new FixtureOptions("Free", false, false, false, true, true, false), 1);
+        int expected = fixture.toString().getBytes(StandardCharsets.UTF_8).length;
+        AtomicLong rendered = new AtomicLong();
+        FixtureListener listener = (phase, teams, nanos, count) -> {
+            if (phase == FixtureListener.Phase.RENDER) rendered.set(count);
+        };
+        FixtureMetrics.addListener(listener);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (FixtureWriter w = new FixtureWriter(Channels.newChannel(bytes),
+                    StandardCharsets.UTF_8, 16)) {
+                w.write(fixture);
+            }
+            assertEquals(expected, rendered.get());
+            rendered.set(0);
+            new FixtureWriter(new StringBuilder()).write(fixture).flush();
+            assertEquals(expected, rendered.get());
+        } finally {
+            FixtureMetrics.removeListener(listener);
+        }
+    }
+}
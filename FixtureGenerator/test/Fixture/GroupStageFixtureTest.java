@@ -0,0 +1,61 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of GroupStageFixture.
+ * @author Haiko
+ */
+class GroupStageFixtureTest {
+
+    /**
+     * Every group is the Fixture its seed would build, for every
+     * combination of options (minBreaks with randomDates included).
+     */
+    @Test
+    void groupsAreTheirFixtures () {
+        String[][] groups = new String[12][];
+        for (int g = 0; g < groups.length; g++) {
+            groups[g] = new String[g + 2];
+            for (int i = 0; i < groups[g].length; i++) groups[g][i] = "G" + g + "T" + i;
+        }
+        for (int bits = 0; bits < 32; bits++) {
+            FixtureOptions options = new FixtureOptions("Free", (bits & 1) != 0,
+                    (bits & 2) != 0, (bits & 4) != 0, true, (bits & 8) != 0, false, false,
+                    (bits & 16) != 0);
+            for (long seed = 0; seed < 3; seed++) {
+                GroupStageFixture stage = new GroupStageFixture(groups, options, seed);
+                for (int g = 0; g < groups.length; g++) {
+                    Fixture fixture = new Fixture(groups[g], options, stage.getSeed(g));
+                    assertEquals(fixture.getMatchdateCount(), stage.getMatchdateCount(g));
+                    for (int k = 1; k <= fixture.getMatchdateCount(); k++) {
+                        assertEquals(fixture.matchdate(k).toString(),
+                                stage.toMatchdate(g, k).toString(),
+                                "options " + bits + ", seed " + seed + ", group " + g + ", matchdate " + k);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of KnockoutFixture.
+ * @author Haiko
+ */
+class KnockoutFixtureTest {
+
+    /**
+     * Plays a whole bracket, the better seed winning every match, and
+     * checks that the top seed wins and that the matches are numbered in
+     * matchdate order.
+     * @param n amount of players
+     * @param doubleElimination
+     */
+    private static void play (int n, boolean doubleElimination) {
+        String[] players = new String[n];
+        for (int i = 0; i < n; i++) players[i] = "P" + (i + 1);
+        KnockoutFixture ko = new KnockoutFixture(players, doubleElimination);
+        boolean[] decided = new boolean[ko.getMatchCount() + 1];
+        int before = 0, latest = 0, played = 0;
+        for (int k = 1; k <= ko.getMatchdateCount(); k++) {
+            for (String player : players) {
+                int m = ko.matchOf(k, player);
+                if (m < 0) continue;
+                assertTrue(m > before, "match " + m + " on matchdate " + k);
+                latest = Math.max(latest, m);
+                if (decided[m]) continue;
+                decided[m] = true;
+                ko.setWinner(m, player);
+                played++;
+                assertEquals(player, ko.getWinner(m));
+            }
+            before = latest;
+        }
+        assertEquals("P1", ko.getChampion());
+        assertTrue(played <= ko.getMatchCount());
+    }
+
+    /**
+     * Setting every winner of a big bracket only touches the matches each
+     * winner affects.
+     */
+    @Test
+    void bigBracket () {
+        play(50000, false);
+        play(50000, true);
+    }
+
+    /**
+     * Small brackets, with and without free players.
+     */
+    @Test
+    void smallBrackets () {
+        for (int n = 2; n <= 33; n++) {
+            play(n, false);
+            play(n, true);
+        }
+    }
+}
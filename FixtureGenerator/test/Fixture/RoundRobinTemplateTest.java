@@ -0,0 +1,89 @@
+/**
+ *  Haiko's Fixture Generator
+ *  Copyright (C) 2014  Haiko René Eitzen Bartel
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package Fixture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of RoundRobinTemplate.
+ * @author Haiko
+ */
+class RoundRobinTemplateTest {
+
+    /**
+     * Threads sharing a template all see whole legs, built only once.
+     * @throws Exception
+     */
+    @Test
+    void legsAreSharedBetweenThreads () throws Exception {
+        int m = 200;
+        RoundRobinTemplate expected = new RoundRobinTemplate(m, false, true, false);
+        expected.buildLegs(2, false);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int run = 0; run < 20; run++) {
+                RoundRobinTemplate shared = new RoundRobinTemplate(m, false, true, false);
+                List<Future<?>> tasks = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    tasks.add(pool.submit(() -> {
+                        long[] x = new long[m / 2], y = new long[m / 2];
+                        for (int r = 1; r <= shared.getRoundCount(); r++) {
+                            assertEquals(expected.home(r, 0), shared.home(r, 0));
+                            shared.round(r, x);
+                            expected.round(r, y);
+                            assertArrayEquals(y, x);
+                        }
+                    }));
+                }
+                for (Future<?> task : tasks) task.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A leg too big for an array is never built, its rounds come from the
+     * oracle.
+     */
+    @Test
+    void legsAboveTheLimitUseTheOracle () {
+        int m = 65538;
+        RoundRobinTemplate template = new RoundRobinTemplate(m, false, false, false);
+        template.buildLegs(2, false);
+        long[] x = new long[m / 2];
+        for (int r : new int[] {1, 2, m - 1, m, 2 * (m - 1)}) {
+            template.round(r, x);
+            for (int i : new int[] {0, 1, m / 2 - 1}) {
+                assertEquals(Match.home(x[i]), template.home(r, i));
+                assertEquals(Match.away(x[i]), template.away(r, i));
+                assertEquals(r, template.oracle().get(template.home(r, i), template.away(r, i)));
+            }
+        }
+    }
+}